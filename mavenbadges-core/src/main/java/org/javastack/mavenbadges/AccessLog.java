@@ -0,0 +1,274 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.javastack.mavenbadges;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Structured (key=value) access log, one line per request, written by a background thread. Request
+ * threads only enqueue a small entry; if queue is full, entry is dropped and counted (never blocks).
+ * Entries are written in batches: files through a buffered writer; on stdout/stderr each batch is a
+ * single print call, so lines are never split by other writers of the same stream (like slf4j-simple
+ * on stderr) and there is one write per batch, not per line.
+ * <p>
+ * System properties:
+ * <ul>
+ * <li>{@value #PROP_OUTPUT}: stdout (default), stderr, none or file path (append)</li>
+ * <li>{@value #PROP_SAMPLE}: fraction of requests logged, 0.0 - 1.0 (default 1.0); server errors
+ * (5xx) are always logged</li>
+ * </ul>
+ *
+ * @author Guillermo Grandes / guillermo.grandes[at]gmail.com
+ */
+final class AccessLog {
+	static final String PROP_OUTPUT = "mavenbadges.accesslog";
+	static final String PROP_SAMPLE = "mavenbadges.accesslog.sample";
+	private static final int QUEUE_SIZE = 8192;
+	private static final int BATCH_SIZE = 256;
+
+	private static final double sample = parseSample(System.getProperty(PROP_SAMPLE));
+	private static final String output = System.getProperty(PROP_OUTPUT, "stdout");
+	private static final PrintStream console = openConsole(output);
+	private static final Writer out = ((console == null) ? openFile(output) : null);
+	private static final BlockingQueue<Entry> queue = new ArrayBlockingQueue<Entry>(QUEUE_SIZE);
+	private static final AtomicLong dropped = new AtomicLong();
+	private static final AtomicLong pending = new AtomicLong(); // queued or unflushed
+	private static volatile Thread writer = null;
+
+	private AccessLog() {
+	}
+
+	/**
+	 * @param id request ID
+	 * @param ip remote address
+	 * @param path request path
+	 * @param status HTTP status code
+	 * @param beginNanos {@link System#nanoTime()} at request begin
+	 */
+	static void log(final String id, final String ip, final String path, final int status,
+			final long beginNanos) {
+		if ((console == null) && (out == null)) {
+			return;
+		}
+		if ((sample < 1.0d) && (status < 500) && (ThreadLocalRandom.current().nextDouble() >= sample)) {
+			return;
+		}
+		final long micros = (System.nanoTime() - beginNanos) / 1000;
+		pending.incrementAndGet();
+		if (!queue.offer(new Entry(System.currentTimeMillis(), id, ip, path, status, micros))) {
+			pending.decrementAndGet();
+			dropped.incrementAndGet();
+		}
+		startWriter();
+	}
+
+	/**
+	 * Wait until queued entries are written and flushed (bounded by timeout)
+	 */
+	static void flush(final long timeoutMillis) {
+		final long deadline = System.currentTimeMillis() + timeoutMillis;
+		while ((pending.get() > 0) && (System.currentTimeMillis() < deadline)) {
+			try {
+				Thread.sleep(10);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Flush pending entries (bounded by timeout) and stop the writer thread (it is started again if
+	 * something is logged later)
+	 */
+	static void shutdown(final long timeoutMillis) {
+		flush(timeoutMillis);
+		synchronized (AccessLog.class) {
+			final Thread t = writer;
+			if (t != null) {
+				t.interrupt();
+				try {
+					t.join(timeoutMillis);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				writer = null;
+			}
+		}
+	}
+
+	private static void startWriter() {
+		if (writer != null) {
+			return;
+		}
+		synchronized (AccessLog.class) {
+			if (writer == null) {
+				final Thread t = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						writeLoop();
+					}
+				}, "mavenbadges-accesslog");
+				t.setDaemon(true);
+				t.start();
+				writer = t;
+			}
+		}
+	}
+
+	private static void writeLoop() {
+		final SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+		df.setTimeZone(TimeZone.getTimeZone("UTC"));
+		final StringBuilder sb = new StringBuilder(256 * BATCH_SIZE);
+		final List<Entry> batch = new ArrayList<Entry>(BATCH_SIZE);
+		while (true) {
+			int written = 0;
+			try {
+				batch.add(queue.take());
+				queue.drainTo(batch, BATCH_SIZE - 1);
+				written = batch.size();
+				sb.setLength(0);
+				for (final Entry e : batch) {
+					e.format(sb, df);
+					final long lost = dropped.getAndSet(0);
+					if (lost > 0) {
+						sb.append(" dropped=").append(lost);
+					}
+					sb.append('\n');
+				}
+				if (console != null) {
+					console.print(sb.toString());
+					console.flush();
+				} else {
+					out.write(sb.toString());
+					if (queue.isEmpty()) {
+						out.flush();
+					}
+				}
+			} catch (InterruptedException e) {
+				return;
+			} catch (IOException e) {
+				// ignore, entries in batch are lost
+			} finally {
+				batch.clear();
+				pending.addAndGet(-written);
+			}
+		}
+	}
+
+	private static double parseSample(final String value) {
+		if (value == null) {
+			return 1.0d;
+		}
+		try {
+			return Double.parseDouble(value.trim());
+		} catch (NumberFormatException e) {
+			MavenBadges.log.warn("Invalid " + PROP_SAMPLE + "=" + value + ", using 1.0");
+			return 1.0d;
+		}
+	}
+
+	private static PrintStream openConsole(final String output) {
+		if ("stdout".equals(output)) {
+			return System.out;
+		} else if ("stderr".equals(output)) {
+			return System.err;
+		}
+		return null;
+	}
+
+	private static Writer openFile(final String output) {
+		if ("none".equals(output)) {
+			return null;
+		}
+		try {
+			return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output, true),
+					StandardCharsets.UTF_8), 64 * 1024);
+		} catch (IOException e) {
+			MavenBadges.log.error("Unable to open access log: " + output + " " + e);
+			return null;
+		}
+	}
+
+	private static final class Entry {
+		final long timestamp;
+		final String id;
+		final String ip;
+		final String path;
+		final int status;
+		final long micros;
+
+		Entry(final long timestamp, final String id, final String ip, final String path, final int status,
+				final long micros) {
+			this.timestamp = timestamp;
+			this.id = id;
+			this.ip = ip;
+			this.path = path;
+			this.status = status;
+			this.micros = micros;
+		}
+
+		void format(final StringBuilder sb, final SimpleDateFormat df) {
+			sb.append("ts=").append(df.format(new Date(timestamp)));
+			sb.append(" id=").append(id);
+			sb.append(" ip=");
+			appendValue(sb, ip);
+			sb.append(" path=");
+			appendValue(sb, path);
+			sb.append(" status=").append(status);
+			sb.append(" us=").append(micros);
+		}
+
+		private static void appendValue(final StringBuilder sb, final String value) {
+			if (value == null) {
+				sb.append('-');
+				return;
+			}
+			boolean quote = value.isEmpty();
+			for (int i = 0; !quote && (i < value.length()); i++) {
+				final char c = value.charAt(i);
+				quote = (c <= ' ') || (c == '"') || (c == '=');
+			}
+			if (!quote) {
+				sb.append(value);
+				return;
+			}
+			sb.append('"');
+			for (int i = 0; i < value.length(); i++) {
+				final char c = value.charAt(i);
+				if ((c == '"') || (c == '\\')) {
+					sb.append('\\');
+				}
+				sb.append((c < ' ') ? '?' : c);
+			}
+			sb.append('"');
+		}
+	}
+}
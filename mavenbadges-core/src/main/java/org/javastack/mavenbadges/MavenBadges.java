@@ -16,6 +16,7 @@ package org.javastack.mavenbadges;
 
 import java.io.BufferedReader;
 import java.io.Closeable;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -26,6 +27,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -48,18 +50,29 @@ import org.xml.sax.SAXException;
 public class MavenBadges {
 	static final Logger log = LoggerFactory.getLogger(MavenBadges.class);
 	private MapExpression metaMapper, searchMapper, svgMapper, linkMapper;
-	private LinkedHashMap<String, String> versionCache;
+	private LinkedHashMap<String, VersionIndex> versionCache;
+	private final AtomicInteger upstreamFailures = new AtomicInteger();
+	private volatile long lastUpstreamSuccess = 0;
+	private volatile long lastUpstreamFailure = 0;
 
 	public MavenBadges() throws IOException, InvalidExpression {
-		metaMapper = new MapExpression().setExpression(Constants.MAVEN_METADATA).parse();
+		this(System.getProperty(Constants.MAVEN_METADATA_PROP, Constants.MAVEN_METADATA));
+	}
+
+	/**
+	 * @param metadataURL expression for maven-metadata.xml URL, with ${groupId} and ${artifactId}
+	 *            (default: Maven Central, repo1.maven.org)
+	 */
+	public MavenBadges(final String metadataURL) throws IOException, InvalidExpression {
+		metaMapper = new MapExpression().setExpression(metadataURL).parse();
 		searchMapper = new MapExpression().setExpression(Constants.MAVEN_SEARCH).parse();
 		svgMapper = new MapExpression().setExpression(getResourceTemplate("template.svg")).parse();
 		linkMapper = new MapExpression().setExpression(getResourceTemplate("template.html")).parse();
-		versionCache = new LinkedHashMap<String, String>() {
+		versionCache = new LinkedHashMap<String, VersionIndex>() {
 			private static final long serialVersionUID = 42L;
 
 			@Override
-			protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+			protected boolean removeEldestEntry(final Map.Entry<String, VersionIndex> eldest) {
 				return size() > 128;
 			}
 		};
@@ -87,30 +100,49 @@ public class MavenBadges {
 			throws IOException, InvalidExpression, ParserConfigurationException, SAXException {
 		if ((pi != null) && !pi.groupId.isEmpty() && !pi.artifactId.isEmpty()
 				&& ("badge.svg".equals(pi.filename) || "link".equals(pi.filename))) {
-			log.info("groupId=" + pi.groupId + " artifactId=" + pi.artifactId + " file=" + pi.filename);
+			if (log.isDebugEnabled()) {
+				log.debug("groupId=" + pi.groupId + " artifactId=" + pi.artifactId + " selector=" + pi.selector
+						+ " file=" + pi.filename);
+			}
 			final String cacheKey = pi.groupId + ":" + pi.artifactId;
-			String version = null;
+			VersionIndex index = null;
 			synchronized (versionCache) {
-				version = versionCache.get(cacheKey);
+				index = versionCache.get(cacheKey);
 			}
-			if (version != null) {
-				log.info("Version cache found cacheKey=" + cacheKey + " version=" + version);
+			if (index != null) {
+				if (log.isDebugEnabled()) {
+					log.debug("Version cache found cacheKey=" + cacheKey + " " + index);
+				}
 			} else {
 				final long begin = System.currentTimeMillis();
-				version = getVersion(getURL(pi.groupId, pi.artifactId));
+				try {
+					index = getVersionIndex(getURL(pi.groupId, pi.artifactId));
+					upstreamSuccess();
+				} catch (FileNotFoundException e) {
+					upstreamSuccess(); // artifact not found, but upstream is alive
+					throw e;
+				} catch (IOException e) {
+					upstreamFailures.incrementAndGet();
+					lastUpstreamFailure = System.currentTimeMillis();
+					throw e;
+				}
 				synchronized (versionCache) {
-					versionCache.put(cacheKey, version);
+					versionCache.put(cacheKey, index);
 				}
 				log.info("Version getted (" + (System.currentTimeMillis() - begin) + "ms)" //
-						+ " cacheKey=" + cacheKey + " version=" + version);
+						+ " cacheKey=" + cacheKey + " " + index);
 			}
+			final String resolved = index.resolve(pi.selector);
+			final String version = ((resolved != null) ? resolved : "?");
 			// Send response
 			if (!"?".equals(version)) {
 				if ("badge.svg".equals(pi.filename)) {
 					final long begin = System.currentTimeMillis();
 					final String svg = generateSVG("maven-central", "v" + version);
-					log.info("SVG generated (" + (System.currentTimeMillis() - begin) + "ms)" //
-							+ " size=" + svg.length());
+					if (log.isDebugEnabled()) {
+						log.debug("SVG generated (" + (System.currentTimeMillis() - begin) + "ms)" //
+								+ " size=" + svg.length());
+					}
 					return response(HttpURLConnection.HTTP_OK, svg);
 				} else if ("link".equals(pi.filename)) {
 					final String link = getLink(pi, version);
@@ -122,6 +154,41 @@ public class MavenBadges {
 		return response(HttpURLConnection.HTTP_NOT_FOUND, "Not Found");
 	}
 
+	private final void upstreamSuccess() {
+		upstreamFailures.set(0);
+		lastUpstreamSuccess = System.currentTimeMillis();
+	}
+
+	/**
+	 * @return number of artifacts in version cache
+	 */
+	public int getCacheSize() {
+		synchronized (versionCache) {
+			return versionCache.size();
+		}
+	}
+
+	/**
+	 * @return consecutive upstream I/O failures (0 after any success)
+	 */
+	public int getUpstreamFailures() {
+		return upstreamFailures.get();
+	}
+
+	/**
+	 * @return timestamp (millis) of last successful upstream request, 0 if none
+	 */
+	public long getLastUpstreamSuccess() {
+		return lastUpstreamSuccess;
+	}
+
+	/**
+	 * @return timestamp (millis) of last failed upstream request, 0 if none
+	 */
+	public long getLastUpstreamFailure() {
+		return lastUpstreamFailure;
+	}
+
 	private final String getURL(final String groupId, final String artifactId) throws InvalidExpression {
 		final StringBuilder sb = new StringBuilder(Constants.MAVEN_METADATA.length() + 32);
 		metaMapper.eval(sb, new Mapper() {
@@ -138,7 +205,7 @@ public class MavenBadges {
 		return sb.toString();
 	}
 
-	private final String getVersion(final String url)
+	private final VersionIndex getVersionIndex(final String url)
 			throws IOException, ParserConfigurationException, SAXException {
 		final URL u = new URL(url);
 		InputStream is = null;
@@ -154,7 +221,7 @@ public class MavenBadges {
 			is = conn.getInputStream();
 			final Document doc = db.parse(is);
 			doc.getDocumentElement().normalize();
-			return doc.getElementsByTagName("release").item(0).getTextContent();
+			return VersionIndex.parse(doc);
 		} finally {
 			closeSilent(is);
 		}
@@ -374,11 +441,14 @@ public class MavenBadges {
 	public static class PathInfo {
 		public final String groupId;
 		public final String artifactId;
+		public final String selector;
 		public final String filename;
 
-		private PathInfo(final String groupId, final String artifactId, final String filename) {
+		private PathInfo(final String groupId, final String artifactId, final String selector,
+				final String filename) {
 			this.groupId = groupId;
 			this.artifactId = artifactId;
+			this.selector = selector;
 			this.filename = filename;
 		}
 
@@ -404,13 +474,16 @@ public class MavenBadges {
 			final String[] tokens = pathInfo.split("/");
 			final String groupId = (tokens.length > 1 ? tokens[1] : "");
 			final String artifactId = (tokens.length > 2 ? tokens[2] : "");
-			final String filename = (tokens.length > 3 ? tokens[3] : "");
-			return new PathInfo(groupId, artifactId, filename);
+			// /groupId/artifactId/filename or /groupId/artifactId/selector/filename
+			final String selector = (tokens.length > 4 ? tokens[3] : "");
+			final String filename = (tokens.length > 4 ? tokens[4] : (tokens.length > 3 ? tokens[3] : ""));
+			return new PathInfo(groupId, artifactId, selector, filename);
 		}
 
 		@Override
 		public String toString() {
-			return "groupId=" + groupId + " artifactId=" + artifactId + " filename=" + filename;
+			return "groupId=" + groupId + " artifactId=" + artifactId + " selector=" + selector //
+					+ " filename=" + filename;
 		}
 	}
 }
@@ -0,0 +1,311 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.javastack.mavenbadges;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Version comparison with the same semantics as Maven ComparableVersion
+ * (without pulling maven-artifact and his dependencies)
+ *
+ * @see <a href=
+ *      "https://maven.apache.org/ref/current/maven-artifact/apidocs/org/apache/maven/artifact/versioning/ComparableVersion.html">ComparableVersion</a>
+ * @author Guillermo Grandes / guillermo.grandes[at]gmail.com
+ */
+final class MavenVersion implements Comparable<MavenVersion> {
+	static final byte KIND_STABLE = 0;
+	static final byte KIND_PRERELEASE = 1;
+	static final byte KIND_SNAPSHOT = 2;
+
+	private static final List<String> QUALIFIERS = Arrays.asList( //
+			"alpha", "beta", "milestone", "rc", "snapshot", "", "sp");
+	private static final String RELEASE_VERSION_INDEX = String.valueOf(QUALIFIERS.indexOf(""));
+	private static final String SNAPSHOT_VERSION_INDEX = String.valueOf(QUALIFIERS.indexOf("snapshot"));
+
+	private final String value;
+	private final ListItem items;
+
+	private MavenVersion(final String value, final ListItem items) {
+		this.value = value;
+		this.items = items;
+	}
+
+	static MavenVersion parse(final String version) {
+		return new MavenVersion(version, parseItems(version.toLowerCase(Locale.ENGLISH)));
+	}
+
+	String getValue() {
+		return value;
+	}
+
+	/**
+	 * @return {@link #KIND_SNAPSHOT}, {@link #KIND_PRERELEASE} or {@link #KIND_STABLE}
+	 */
+	byte getKind() {
+		return kind(items);
+	}
+
+	@Override
+	public int compareTo(final MavenVersion o) {
+		return items.compareTo(o.items);
+	}
+
+	@Override
+	public String toString() {
+		return value;
+	}
+
+	private static byte kind(final ListItem list) {
+		byte kind = KIND_STABLE;
+		for (final Item item : list) {
+			final byte k;
+			if (item instanceof ListItem) {
+				k = kind((ListItem) item);
+			} else if (item instanceof StringItem) {
+				final String q = ((StringItem) item).comparable;
+				if (q.equals(SNAPSHOT_VERSION_INDEX)) {
+					k = KIND_SNAPSHOT;
+				} else if (q.compareTo(RELEASE_VERSION_INDEX) < 0) {
+					k = KIND_PRERELEASE;
+				} else {
+					k = KIND_STABLE;
+				}
+			} else {
+				k = KIND_STABLE;
+			}
+			if (k > kind) {
+				kind = k;
+			}
+		}
+		return kind;
+	}
+
+	private static ListItem parseItems(final String version) {
+		final ListItem root = new ListItem();
+		final Deque<ListItem> stack = new ArrayDeque<ListItem>();
+		ListItem list = root;
+		stack.push(list);
+		boolean isDigit = false;
+		int start = 0;
+		for (int i = 0; i < version.length(); i++) {
+			final char c = version.charAt(i);
+			if (c == '.') {
+				if (i == start) {
+					list.add(IntItem.ZERO);
+				} else {
+					list.add(parseItem(isDigit, version.substring(start, i)));
+				}
+				start = i + 1;
+			} else if (c == '-') {
+				if (i == start) {
+					list.add(IntItem.ZERO);
+				} else {
+					list.add(parseItem(isDigit, version.substring(start, i)));
+				}
+				start = i + 1;
+				list.add(list = new ListItem());
+				stack.push(list);
+			} else if (Character.isDigit(c)) {
+				if (!isDigit && (i > start)) {
+					// 1.0.0.X1 < 1.0.0-X2: treat .X as -X for any string qualifier X
+					if (!list.isEmpty()) {
+						list.add(list = new ListItem());
+						stack.push(list);
+					}
+					list.add(new StringItem(version.substring(start, i), true));
+					start = i;
+					list.add(list = new ListItem());
+					stack.push(list);
+				}
+				isDigit = true;
+			} else {
+				if (isDigit && (i > start)) {
+					list.add(parseItem(true, version.substring(start, i)));
+					start = i;
+					list.add(list = new ListItem());
+					stack.push(list);
+				}
+				isDigit = false;
+			}
+		}
+		if (version.length() > start) {
+			if (!isDigit && !list.isEmpty()) {
+				list.add(list = new ListItem());
+				stack.push(list);
+			}
+			list.add(parseItem(isDigit, version.substring(start)));
+		}
+		while (!stack.isEmpty()) {
+			stack.pop().normalize();
+		}
+		return root;
+	}
+
+	private static Item parseItem(final boolean isDigit, final String buf) {
+		return (isDigit ? new IntItem(buf) : new StringItem(buf, false));
+	}
+
+	private static interface Item {
+		int compareTo(Item item);
+
+		boolean isNull();
+	}
+
+	/**
+	 * Arbitrary size integer, kept as digits without leading zeros
+	 */
+	private static final class IntItem implements Item {
+		static final IntItem ZERO = new IntItem("0");
+		private final String digits;
+
+		IntItem(final String str) {
+			int i = 0;
+			while ((i < str.length() - 1) && (str.charAt(i) == '0')) {
+				i++;
+			}
+			this.digits = str.substring(i);
+		}
+
+		@Override
+		public boolean isNull() {
+			return "0".equals(digits);
+		}
+
+		@Override
+		public int compareTo(final Item item) {
+			if (item == null) {
+				return (isNull() ? 0 : 1); // 1.0 == 1, 1.1 > 1
+			} else if (item instanceof IntItem) {
+				final String o = ((IntItem) item).digits;
+				final int cmp = Integer.compare(digits.length(), o.length());
+				return ((cmp != 0) ? cmp : Integer.signum(digits.compareTo(o)));
+			}
+			return 1; // 1.1 > 1-sp, 1.1 > 1-1
+		}
+
+		@Override
+		public String toString() {
+			return digits;
+		}
+	}
+
+	private static final class StringItem implements Item {
+		private final String value;
+		private final String comparable;
+
+		StringItem(String value, final boolean followedByDigit) {
+			if (followedByDigit && (value.length() == 1)) {
+				// a1 = alpha-1, b1 = beta-1, m1 = milestone-1
+				switch (value.charAt(0)) {
+				case 'a':
+					value = "alpha";
+					break;
+				case 'b':
+					value = "beta";
+					break;
+				case 'm':
+					value = "milestone";
+					break;
+				default:
+				}
+			}
+			if ("ga".equals(value) || "final".equals(value) || "release".equals(value)) {
+				value = "";
+			} else if ("cr".equals(value)) {
+				value = "rc";
+			}
+			this.value = value;
+			final int i = QUALIFIERS.indexOf(value);
+			this.comparable = ((i == -1) ? (QUALIFIERS.size() + "-" + value) : String.valueOf(i));
+		}
+
+		@Override
+		public boolean isNull() {
+			return comparable.equals(RELEASE_VERSION_INDEX);
+		}
+
+		@Override
+		public int compareTo(final Item item) {
+			if (item == null) {
+				return Integer.signum(comparable.compareTo(RELEASE_VERSION_INDEX));
+			} else if (item instanceof StringItem) {
+				return Integer.signum(comparable.compareTo(((StringItem) item).comparable));
+			}
+			return -1; // 1.any < 1.1, 1.any < 1-1
+		}
+
+		@Override
+		public String toString() {
+			return value;
+		}
+	}
+
+	private static final class ListItem extends ArrayList<Item> implements Item {
+		private static final long serialVersionUID = 42L;
+
+		@Override
+		public boolean isNull() {
+			return isEmpty();
+		}
+
+		void normalize() {
+			for (int i = size() - 1; i >= 0; i--) {
+				final Item last = get(i);
+				if (last.isNull()) {
+					remove(i); // remove null trailing items: 0, "", empty list
+				} else if (!(last instanceof ListItem)) {
+					break;
+				}
+			}
+		}
+
+		@Override
+		public int compareTo(final Item item) {
+			if (item == null) {
+				// every item, not only first (MNG-6964): 1-0.1 > 1
+				for (final Item i : this) {
+					final int result = i.compareTo(null);
+					if (result != 0) {
+						return result;
+					}
+				}
+				return 0;
+			} else if (item instanceof IntItem) {
+				return -1; // 1-1 < 1.0.x
+			} else if (item instanceof StringItem) {
+				return 1; // 1-1 > 1-sp
+			}
+			final Iterator<Item> left = iterator();
+			final Iterator<Item> right = ((ListItem) item).iterator();
+			while (left.hasNext() || right.hasNext()) {
+				final Item l = (left.hasNext() ? left.next() : null);
+				final Item r = (right.hasNext() ? right.next() : null);
+				final int result = ((l == null) //
+						? ((r == null) ? 0 : -1 * r.compareTo(l)) //
+						: l.compareTo(r));
+				if (result != 0) {
+					return result;
+				}
+			}
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.javastack.mavenbadges;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cheap request ID generator: per-process random prefix plus a monotonic counter. Threads reserve
+ * blocks of IDs, so the shared counter is touched once every {@value #BLOCK_SIZE} requests (unlike
+ * UUID.randomUUID, that goes to a contended SecureRandom every time).
+ *
+ * @author Guillermo Grandes / guillermo.grandes[at]gmail.com
+ */
+final class RequestId {
+	private static final int BLOCK_SIZE = 1024;
+	private static final String PREFIX = Long.toString(
+			(System.currentTimeMillis() ^ System.nanoTime()) & 0xFFFFFFFFFFL, 36) + "-";
+	private static final AtomicLong blocks = new AtomicLong();
+	private static final ThreadLocal<long[]> local = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[] { 0, 0 }; // next, limit
+		}
+	};
+
+	private RequestId() {
+	}
+
+	static String next() {
+		final long[] range = local.get();
+		if (range[0] >= range[1]) {
+			range[0] = blocks.getAndIncrement() * BLOCK_SIZE;
+			range[1] = range[0] + BLOCK_SIZE;
+		}
+		return PREFIX + Long.toString(range[0]++, 36);
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.javastack.mavenbadges;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+/**
+ * Compact, immutable, version index of an artifact (parsed from maven-metadata.xml)
+ *
+ * @author Guillermo Grandes / guillermo.grandes[at]gmail.com
+ */
+final class VersionIndex {
+	static final String SELECTOR_LATEST = "latest";
+	static final String SELECTOR_STABLE = "stable";
+	static final String SELECTOR_SNAPSHOT = "snapshot";
+	static final String SELECTOR_PREFIX_SUFFIX = ".x";
+
+	private final String release;
+	// sorted ascending (ComparableVersion order)
+	private final String[] versions;
+	private final byte[] kinds;
+
+	private VersionIndex(final String release, final String[] versions, final byte[] kinds) {
+		this.release = release;
+		this.versions = versions;
+		this.kinds = kinds;
+	}
+
+	static VersionIndex parse(final Document doc) {
+		final Set<String> values = new LinkedHashSet<String>();
+		final NodeList nodes = doc.getElementsByTagName("version");
+		for (int i = 0; i < nodes.getLength(); i++) {
+			final String v = nodes.item(i).getTextContent().trim();
+			if (!v.isEmpty()) {
+				values.add(v);
+			}
+		}
+		final String release = getText(doc, "release");
+		if (release != null) {
+			values.add(release);
+		}
+		final MavenVersion[] parsed = new MavenVersion[values.size()];
+		int n = 0;
+		for (final String v : values) {
+			parsed[n++] = MavenVersion.parse(v);
+		}
+		Arrays.sort(parsed);
+		final String[] versions = new String[n];
+		final byte[] kinds = new byte[n];
+		for (int i = 0; i < n; i++) {
+			versions[i] = parsed[i].getValue();
+			kinds[i] = parsed[i].getKind();
+		}
+		return new VersionIndex(release, versions, kinds);
+	}
+
+	private static String getText(final Document doc, final String tagName) {
+		final NodeList nodes = doc.getElementsByTagName(tagName);
+		if (nodes.getLength() > 0) {
+			final String text = nodes.item(0).getTextContent().trim();
+			return (text.isEmpty() ? null : text);
+		}
+		return null;
+	}
+
+	int size() {
+		return versions.length;
+	}
+
+	/**
+	 * Resolve version using selector:
+	 * <ul>
+	 * <li>empty/null: release tag from metadata (fallback to latest stable)</li>
+	 * <li>{@value #SELECTOR_LATEST}: highest version, including pre-releases and snapshots</li>
+	 * <li>{@value #SELECTOR_STABLE}: highest version without pre-release/snapshot qualifiers</li>
+	 * <li>{@value #SELECTOR_SNAPSHOT}: highest snapshot version</li>
+	 * <li>prefix{@value #SELECTOR_PREFIX_SUFFIX} (like 1.x or 1.2.x): highest stable version in that
+	 * line (fallback to highest of any kind)</li>
+	 * </ul>
+	 *
+	 * @param selector
+	 * @return version or null if not found
+	 */
+	String resolve(final String selector) {
+		if ((selector == null) || selector.isEmpty()) {
+			return ((release != null) ? release : latestStable());
+		} else if (SELECTOR_LATEST.equals(selector)) {
+			return latest();
+		} else if (SELECTOR_STABLE.equals(selector)) {
+			return latestStable();
+		} else if (SELECTOR_SNAPSHOT.equals(selector)) {
+			return latestSnapshot();
+		} else if (selector.endsWith(SELECTOR_PREFIX_SUFFIX) && (selector.length() > 2)) {
+			return latestWithPrefix(selector.substring(0, selector.length() - 1));
+		}
+		return null;
+	}
+
+	String latest() {
+		return ((versions.length > 0) ? versions[versions.length - 1] : null);
+	}
+
+	String latestStable() {
+		return latestOfKind(MavenVersion.KIND_STABLE);
+	}
+
+	String latestSnapshot() {
+		return latestOfKind(MavenVersion.KIND_SNAPSHOT);
+	}
+
+	/**
+	 * @param prefix like "1." or "1.2."
+	 * @return highest stable version starting with prefix, or highest of any kind if no stable found
+	 */
+	String latestWithPrefix(final String prefix) {
+		final String base = prefix.substring(0, prefix.length() - 1); // "1." matches "1" too
+		String candidate = null;
+		for (int i = versions.length - 1; i >= 0; i--) {
+			final String v = versions[i];
+			if (v.startsWith(prefix) || v.equals(base) || v.startsWith(base + "-")) {
+				if (kinds[i] == MavenVersion.KIND_STABLE) {
+					return v;
+				} else if (candidate == null) {
+					candidate = v;
+				}
+			}
+		}
+		return candidate;
+	}
+
+	private String latestOfKind(final byte kind) {
+		for (int i = versions.length - 1; i >= 0; i--) {
+			if (kinds[i] == kind) {
+				return versions[i];
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return "release=" + release + " versions=" + versions.length + " latest=" + latest();
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.javastack.mavenbadges;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.javastack.mavenbadges.MavenBadges.PathInfo;
+import org.junit.Test;
+
+public class VersionIndexTest {
+	private static int compare(final String a, final String b) {
+		return Integer.signum(MavenVersion.parse(a).compareTo(MavenVersion.parse(b)));
+	}
+
+	private static VersionIndex index(final String release, final String... versions) throws Exception {
+		final StringBuilder sb = new StringBuilder("<metadata><versioning>");
+		if (release != null) {
+			sb.append("<release>").append(release).append("</release>");
+		}
+		sb.append("<versions>");
+		for (final String v : versions) {
+			sb.append("<version>").append(v).append("</version>");
+		}
+		sb.append("</versions></versioning></metadata>");
+		return VersionIndex.parse(DocumentBuilderFactory.newInstance().newDocumentBuilder()
+				.parse(new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8))));
+	}
+
+	@Test
+	public void testOrdering() {
+		// https://maven.apache.org/pom.html#version-order-specification
+		final String[] ordered = { "1-alpha1", "1-beta", "1-rc1", "1", "1-sp1", "1.0.1" };
+		for (int i = 1; i < ordered.length; i++) {
+			assertEquals(ordered[i - 1] + " < " + ordered[i], -1, compare(ordered[i - 1], ordered[i]));
+			assertEquals(ordered[i] + " > " + ordered[i - 1], 1, compare(ordered[i], ordered[i - 1]));
+		}
+		assertEquals(0, compare("1.0.RELEASE", "1"));
+		assertEquals(0, compare("1.0", "1"));
+		assertEquals(0, compare("1-ga", "1-final"));
+		assertEquals(0, compare("1-cr1", "1-rc1"));
+		assertEquals(-1, compare("1.9", "1.10"));
+		assertEquals(-1, compare("1.0-alpha-1-SNAPSHOT", "1.0-alpha-1"));
+		assertEquals(1, compare("1-0.1", "1"));
+		assertEquals(-1, compare("1", "1-0.1"));
+		assertEquals(-1, compare("1-0.alpha", "1"));
+	}
+
+	@Test
+	public void testKind() {
+		assertEquals(MavenVersion.KIND_PRERELEASE, MavenVersion.parse("2.0.0-M1").getKind());
+		assertEquals(MavenVersion.KIND_PRERELEASE, MavenVersion.parse("1.0-rc1").getKind());
+		assertEquals(MavenVersion.KIND_STABLE, MavenVersion.parse("31.0-jre").getKind());
+		assertEquals(MavenVersion.KIND_STABLE, MavenVersion.parse("1.0.RELEASE").getKind());
+		assertEquals(MavenVersion.KIND_STABLE, MavenVersion.parse("1-sp1").getKind());
+		assertEquals(MavenVersion.KIND_SNAPSHOT, MavenVersion.parse("1.2-SNAPSHOT").getKind());
+	}
+
+	@Test
+	public void testSelectors() throws Exception {
+		final VersionIndex vi = index("2.0-rc1", //
+				"1.9", "1.10", "1.11-beta1", "10.0", "2.0-rc1", "10.1-SNAPSHOT", "1.2-SNAPSHOT");
+		assertEquals(7, vi.size());
+		assertEquals("2.0-rc1", vi.resolve(null));
+		assertEquals("2.0-rc1", vi.resolve(""));
+		assertEquals("10.1-SNAPSHOT", vi.resolve("latest"));
+		assertEquals("10.0", vi.resolve("stable"));
+		assertEquals("10.1-SNAPSHOT", vi.resolve("snapshot"));
+		// 1.x must not match 10.0, and prefers stable over 1.11-beta1
+		assertEquals("1.10", vi.resolve("1.x"));
+		assertEquals("10.0", vi.resolve("10.x"));
+		// only pre-release in 2.x line
+		assertEquals("2.0-rc1", vi.resolve("2.x"));
+		assertNull(vi.resolve("3.x"));
+		assertNull(vi.resolve("junk"));
+		assertNull(vi.resolve(".x"));
+	}
+
+	@Test
+	public void testWithoutRelease() throws Exception {
+		final VersionIndex vi = index(null, "1.0", "1.1-rc1");
+		assertEquals("1.0", vi.resolve(""));
+		assertEquals("1.1-rc1", vi.resolve("latest"));
+		assertNull(vi.resolve("snapshot"));
+	}
+
+	@Test
+	public void testPathInfo() {
+		final PathInfo p3 = PathInfo.parse("/org.javastack/mavenbadges-core/badge.svg");
+		assertEquals("org.javastack", p3.groupId);
+		assertEquals("mavenbadges-core", p3.artifactId);
+		assertEquals("", p3.selector);
+		assertEquals("badge.svg", p3.filename);
+		final PathInfo p4 = PathInfo.parse("/org.javastack/mavenbadges-core/1.x/link");
+		assertEquals("org.javastack", p4.groupId);
+		assertEquals("mavenbadges-core", p4.artifactId);
+		assertEquals("1.x", p4.selector);
+		assertEquals("link", p4.filename);
+		final PathInfo p2 = PathInfo.parse("/org.javastack/mavenbadges-core");
+		assertEquals("", p2.selector);
+		assertEquals("", p2.filename);
+		assertNull(PathInfo.parse("/org.javastack/mavenbadges-core/bad%path"));
+		assertNull(PathInfo.parse(""));
+		assertNull(PathInfo.parse(null));
+		assertTrue(PathInfo.parse("/").groupId.isEmpty());
+	}
+}
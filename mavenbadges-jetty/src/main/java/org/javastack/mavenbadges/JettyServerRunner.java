@@ -1,6 +1,7 @@
 package org.javastack.mavenbadges;
 
 import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.StatisticsHandler;
 import org.eclipse.jetty.servlet.ServletHandler;
 
 public class JettyServerRunner {
@@ -19,7 +20,10 @@ public class JettyServerRunner {
 		// that is backed by an instance of a Servlet.
 		// This handler then needs to be registered with the Server object.
 		final ServletHandler handler = new ServletHandler();
-		server.setHandler(handler);
+		// StatisticsHandler is Graceful: on stop, waits (up to stop timeout) for in-flight requests
+		final StatisticsHandler stats = new StatisticsHandler();
+		stats.setHandler(handler);
+		server.setHandler(stats);
 
 		// Passing in the class for the Servlet allows jetty to instantiate an
 		// instance of that Servlet and mount it on a given context path.
@@ -27,7 +31,21 @@ public class JettyServerRunner {
 		// IMPORTANT:
 		// This is a raw Servlet, not a Servlet that has been configured
 		// through a web.xml @WebServlet annotation, or anything similar.
-		handler.addServletWithMapping(MavenBadgesServlet.class, "/*");
+		// Init on start (like load-on-startup in web.xml), not on first request, so warm-up starts early
+		handler.addServletWithMapping(MavenBadgesServlet.class, "/*").setInitOrder(1);
+		// Stop gracefully on JVM shutdown (SIGTERM): readiness down, delay, drain in-flight requests
+		server.setStopTimeout(Constants.CONNECTION_TIMEOUT + Constants.READ_TIMEOUT);
+		Runtime.getRuntime().addShutdownHook(new Thread("jetty-shutdown") {
+			@Override
+			public void run() {
+				try {
+					MavenBadgesServlet.prepareShutdown();
+					server.stop();
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		});
 		// Start things up!
 		server.start();
 
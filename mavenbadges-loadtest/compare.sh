@@ -0,0 +1,82 @@
+#!/bin/bash
+#
+# Compare standalone runners (nio, jetty, tomcat): startup time, RSS and throughput
+#
+# Usage (after mvn package, from project root, Linux):
+#   mavenbadges-loadtest/compare.sh [runner...]        (default: nio jetty tomcat)
+#
+# For each runner: start the shaded jar, measure time until first HTTP response (JVM start included)
+# and RSS (idle), run LoadTestMain -Dtarget=http against it (simulator as upstream), then RSS again
+# (current and peak). Environment: JAVA_OPTS (-Xmx256m), DURATION (30), WARMUP (5), THREADS (16),
+# SIM_PORT (18081), SIM_LATENCY (lognormal:80:0.5), PORT (8080, fixed in runners)
+#
+set -e
+cd "$(dirname "$0")/.."
+
+JAVA_OPTS="${JAVA_OPTS:--Xmx256m}"
+DURATION="${DURATION:-30}"
+WARMUP="${WARMUP:-5}"
+THREADS="${THREADS:-16}"
+SIM_PORT="${SIM_PORT:-18081}"
+SIM_LATENCY="${SIM_LATENCY:-lognormal:80:0.5}"
+PORT="${PORT:-8080}"
+RUNNERS="${*:-nio jetty tomcat}"
+METADATA='http://127.0.0.1:'${SIM_PORT}'/maven2/${groupId}/${artifactId}/maven-metadata.xml'
+
+jar_of() {
+	ls mavenbadges-$1/target/mavenbadges-$1-*.jar 2>/dev/null | grep -v -e sources -e javadoc -e original | head -1
+}
+
+rss_kb() {
+	awk -v k="$2:" '$1 == k { print $2 }' /proc/$1/status
+}
+
+now_ms() {
+	echo $(($(date +%s%N) / 1000000))
+}
+
+LOADTEST=$(jar_of loadtest)
+if [ -z "$LOADTEST" ]; then
+	echo "mavenbadges-loadtest jar not found, run: mvn package" >&2
+	exit 1
+fi
+
+REPORT=""
+for runner in $RUNNERS; do
+	JAR=$(jar_of $runner)
+	if [ -z "$JAR" ]; then
+		echo "mavenbadges-$runner jar not found, skipped" >&2
+		continue
+	fi
+	echo "=== $runner: $JAR"
+	begin=$(now_ms)
+	java $JAVA_OPTS -Dmavenbadges.accesslog=none -Dmavenbadges.shutdownDelay=0 \
+		-Dmavenbadges.metadata="$METADATA" -jar "$JAR" >/tmp/mavenbadges-$runner.log 2>&1 &
+	pid=$!
+	# any HTTP response (even 404) means listening and serving
+	until curl -s -o /dev/null "http://127.0.0.1:$PORT/_health/live"; do
+		if ! kill -0 $pid 2>/dev/null; then
+			echo "$runner failed to start, see /tmp/mavenbadges-$runner.log" >&2
+			exit 1
+		fi
+		sleep 0.02
+	done
+	startup=$(($(now_ms) - begin))
+	sleep 1
+	rss_idle=$(rss_kb $pid VmRSS)
+	java $JAVA_OPTS -Dtarget=http -Durl="http://127.0.0.1:$PORT" -Dsim.port=$SIM_PORT \
+		-Dsim.latency=$SIM_LATENCY -Dthreads=$THREADS -Dduration=$DURATION -Dwarmup=$WARMUP \
+		-jar "$LOADTEST" | tee /tmp/mavenbadges-$runner-loadtest.txt
+	rss_load=$(rss_kb $pid VmRSS)
+	rss_peak=$(rss_kb $pid VmHWM)
+	kill $pid
+	wait $pid 2>/dev/null || true
+	throughput=$(sed -n 's/.*throughput=\([0-9.]*\).*/\1/p' /tmp/mavenbadges-$runner-loadtest.txt)
+	latency=$(sed -n 's/^latency(us) //p' /tmp/mavenbadges-$runner-loadtest.txt)
+	REPORT="$REPORT$(printf '%-8s startup=%5dms rss(idle)=%4dMB rss(load)=%4dMB rss(peak)=%4dMB req/s=%s %s' \
+		$runner $startup $((rss_idle / 1024)) $((rss_load / 1024)) $((rss_peak / 1024)) "$throughput" "$latency")\n"
+done
+
+echo
+echo "=== Summary (JAVA_OPTS=$JAVA_OPTS threads=$THREADS duration=${DURATION}s sim.latency=$SIM_LATENCY)"
+printf "$REPORT"
@@ -0,0 +1,269 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.javastack.mavenbadges;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-loop load generator: N threads issuing requests back to back, artifact popularity follows a
+ * Zipf distribution
+ *
+ * @author Guillermo Grandes / guillermo.grandes[at]gmail.com
+ */
+public class LoadGenerator {
+	/**
+	 * Request executor, returns HTTP status code
+	 */
+	public static interface Target {
+		int call(String path) throws Exception;
+	}
+
+	private final Target target;
+	private final int threads;
+	private final String[] artifacts;
+	private final Zipf zipf;
+
+	/**
+	 * @param target
+	 * @param threads concurrent clients
+	 * @param artifactCount distinct artifacts
+	 * @param zipfExponent skew of popularity (0 = uniform, ~1 = realistic)
+	 */
+	public LoadGenerator(final Target target, final int threads, final int artifactCount,
+			final double zipfExponent) {
+		this.target = target;
+		this.threads = threads;
+		this.artifacts = new String[artifactCount];
+		// Shuffle ranks, popular artifacts do not need to be adjacent in LRU
+		final List<Integer> ids = new ArrayList<Integer>(artifactCount);
+		for (int i = 0; i < artifactCount; i++) {
+			ids.add(i);
+		}
+		Collections.shuffle(ids, new Random(42));
+		for (int i = 0; i < artifactCount; i++) {
+			final int id = ids.get(i);
+			artifacts[i] = "/org.example.group" + (id % 10) + "/artifact-" + id + "/";
+		}
+		this.zipf = new Zipf(artifactCount, zipfExponent);
+	}
+
+	/**
+	 * Mix of requests: 80% badge.svg, 10% link, 10% badge.svg with version selector
+	 */
+	String nextPath() {
+		final ThreadLocalRandom r = ThreadLocalRandom.current();
+		final String base = artifacts[zipf.next(r)];
+		final int dice = r.nextInt(10);
+		if (dice == 0) {
+			return base + "link";
+		} else if (dice == 1) {
+			return base + ((r.nextBoolean()) ? "stable/badge.svg" : "1.x/badge.svg");
+		}
+		return base + "badge.svg";
+	}
+
+	public Result run(final long durationMillis) throws InterruptedException {
+		final Worker[] workers = new Worker[threads];
+		final CountDownLatch done = new CountDownLatch(threads);
+		final long begin = System.nanoTime();
+		final long deadline = begin + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+		for (int i = 0; i < threads; i++) {
+			workers[i] = new Worker(deadline, done);
+			final Thread t = new Thread(workers[i], "loadgen-" + i);
+			t.setDaemon(true);
+			t.start();
+		}
+		done.await();
+		final long elapsed = System.nanoTime() - begin;
+		final Result result = new Result(elapsed);
+		for (final Worker w : workers) {
+			result.merge(w);
+		}
+		return result;
+	}
+
+	private final class Worker implements Runnable {
+		final long deadline;
+		final CountDownLatch done;
+		final Histogram histogram = new Histogram();
+		final Map<Integer, Long> status = new TreeMap<Integer, Long>();
+		long exceptions = 0;
+
+		Worker(final long deadline, final CountDownLatch done) {
+			this.deadline = deadline;
+			this.done = done;
+		}
+
+		@Override
+		public void run() {
+			try {
+				long now;
+				while ((now = System.nanoTime()) < deadline) {
+					final String path = nextPath();
+					int code;
+					try {
+						code = target.call(path);
+					} catch (Exception e) {
+						exceptions++;
+						code = -1;
+					}
+					histogram.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - now));
+					final Long prev = status.get(code);
+					status.put(code, (prev == null) ? 1L : prev + 1);
+				}
+			} finally {
+				done.countDown();
+			}
+		}
+	}
+
+	public static final class Result {
+		final long elapsedNanos;
+		final Histogram histogram = new Histogram();
+		final Map<Integer, Long> status = new TreeMap<Integer, Long>();
+		long exceptions = 0;
+
+		Result(final long elapsedNanos) {
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		void merge(final Worker w) {
+			histogram.merge(w.histogram);
+			for (final Map.Entry<Integer, Long> e : w.status.entrySet()) {
+				final Long prev = status.get(e.getKey());
+				status.put(e.getKey(), (prev == null) ? e.getValue() : prev + e.getValue());
+			}
+			exceptions += w.exceptions;
+		}
+
+		public long getRequests() {
+			return histogram.count;
+		}
+
+		public double getSeconds() {
+			return elapsedNanos / 1e9;
+		}
+
+		public double getThroughput() {
+			return histogram.count / getSeconds();
+		}
+
+		@Override
+		public String toString() {
+			return String.format("requests=%d elapsed=%.1fs throughput=%.1f req/s%n" //
+					+ "latency(us) p50=%d p90=%d p99=%d p99.9=%d max=%d%n" //
+					+ "status=%s exceptions=%d", //
+					histogram.count, getSeconds(), getThroughput(), //
+					histogram.percentile(50), histogram.percentile(90), histogram.percentile(99), //
+					histogram.percentile(99.9), histogram.max, //
+					status, exceptions);
+		}
+	}
+
+	/**
+	 * Zipf sampler over ranks [0, n), inverse CDF with binary search
+	 */
+	static final class Zipf {
+		private final double[] cdf;
+
+		Zipf(final int n, final double s) {
+			cdf = new double[n];
+			double sum = 0;
+			for (int i = 0; i < n; i++) {
+				sum += 1 / Math.pow(i + 1, s);
+				cdf[i] = sum;
+			}
+			for (int i = 0; i < n; i++) {
+				cdf[i] /= sum;
+			}
+		}
+
+		int next(final Random r) {
+			final int i = Arrays.binarySearch(cdf, r.nextDouble());
+			return Math.min((i >= 0) ? i : -i - 1, cdf.length - 1);
+		}
+	}
+
+	/**
+	 * Log-linear histogram (values in micros, ~1.5% precision), single writer
+	 */
+	static final class Histogram {
+		private static final int SUB_BITS = 6;
+		private static final int SUB = 1 << SUB_BITS;
+		private final long[] buckets = new long[SUB * 60];
+		long count = 0;
+		long max = 0;
+
+		void record(final long value) {
+			final long v = Math.max(value, 0);
+			buckets[index(v)]++;
+			count++;
+			if (v > max) {
+				max = v;
+			}
+		}
+
+		void merge(final Histogram o) {
+			for (int i = 0; i < buckets.length; i++) {
+				buckets[i] += o.buckets[i];
+			}
+			count += o.count;
+			max = Math.max(max, o.max);
+		}
+
+		long percentile(final double p) {
+			if (count == 0) {
+				return 0;
+			}
+			final long rank = (long) Math.ceil((p / 100) * count);
+			long seen = 0;
+			for (int i = 0; i < buckets.length; i++) {
+				seen += buckets[i];
+				if (seen >= rank) {
+					return Math.min(value(i), max);
+				}
+			}
+			return max;
+		}
+
+		private static int index(final long v) {
+			if (v < (SUB << 1)) {
+				return (int) v;
+			}
+			final int shift = (63 - Long.numberOfLeadingZeros(v)) - SUB_BITS;
+			return (SUB * (shift + 1)) + (int) ((v >>> shift) - SUB);
+		}
+
+		/**
+		 * @return upper bound of bucket
+		 */
+		private static long value(final int index) {
+			if (index < (SUB << 1)) {
+				return index;
+			}
+			final int shift = (index / SUB) - 1;
+			return ((((index % SUB) + SUB + 1L) << shift) - 1);
+		}
+	}
+}
@@ -0,0 +1,247 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.javastack.mavenbadges;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+
+import org.eclipse.jetty.server.NetworkConnector;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.ServletHandler;
+import org.javastack.mavenbadges.LoadGenerator.Result;
+import org.javastack.mavenbadges.LoadGenerator.Target;
+import org.javastack.mavenbadges.MavenBadges.PathInfo;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayV2HTTPEvent;
+
+/**
+ * Load test against local Maven Central simulator
+ * <p>
+ * System properties:
+ * <ul>
+ * <li>target: core | lambda | servlet (embedded Jetty) | nio | http (default: core)</li>
+ * <li>url: base URL for target=http, server must run with -Dmavenbadges.metadata=(simulator URL),
+ * see sim.port</li>
+ * <li>threads (16), duration (30 seconds), warmup (5 seconds), artifacts (1000), zipf (1.0)</li>
+ * <li>sim.*: see {@link MetadataSimulator.Config#fromSystemProperties()}</li>
+ * <li>mavenbadges.accesslog: none by default (in-process targets would flood stdout and the writer
+ * thread would compete with the measured server), set it to override</li>
+ * </ul>
+ * Example: {@code java -Dtarget=servlet -Dsim.latency=lognormal:80:0.5 -Dsim.errorRate=0.01 -jar mavenbadges-loadtest.jar}
+ *
+ * @author Guillermo Grandes / guillermo.grandes[at]gmail.com
+ */
+public class LoadTestMain {
+	public static void main(String[] args) throws Throwable {
+		final String targetName = System.getProperty("target", "core");
+		final int threads = Integer.getInteger("threads", 16);
+		final int duration = Integer.getInteger("duration", 30);
+		final int warmup = Integer.getInteger("warmup", 5);
+		final int artifacts = Integer.getInteger("artifacts", 1000);
+		final double zipf = Double.parseDouble(System.getProperty("zipf", "1.0"));
+
+		final MetadataSimulator.Config simConfig = MetadataSimulator.Config.fromSystemProperties();
+		final MetadataSimulator sim = new MetadataSimulator(simConfig);
+		sim.start();
+		System.setProperty(Constants.MAVEN_METADATA_PROP, sim.getMetadataURL());
+		System.out.println("Simulator: " + sim.getMetadataURL() + " " + simConfig);
+
+		if (System.getProperty(AccessLog.PROP_OUTPUT) == null) {
+			System.setProperty(AccessLog.PROP_OUTPUT, "none");
+		}
+		final Target target = createTarget(targetName);
+		final LoadGenerator gen = new LoadGenerator(target, threads, artifacts, zipf);
+		System.out.println("Target: " + targetName + " threads=" + threads + " duration=" + duration
+				+ "s warmup=" + warmup + "s artifacts=" + artifacts + " zipf=" + zipf);
+		if (warmup > 0) {
+			gen.run(warmup * 1000L);
+			sim.resetCounters();
+		}
+		final Result result = gen.run(duration * 1000L);
+		final long upstream = sim.getRequests();
+		System.out.println(result);
+		// notModified stays 0 until MavenBadges sends conditional requests
+		System.out.println(String.format("upstream requests=%d qps=%.1f notModified=%d (no conditional"
+				+ " requests sent yet) errors=%d notFound=%d timeouts=%d", //
+				upstream, upstream / result.getSeconds(), sim.getNotModified(), sim.getErrors(),
+				sim.getNotFound(), sim.getTimeouts()));
+		// every cache miss is exactly one upstream request
+		System.out.println(String.format("cache hit ratio=%.4f", //
+				(result.getRequests() > 0) ? Math.max(0, 1 - ((double) upstream / result.getRequests())) : 0));
+		sim.stop();
+		System.exit(0);
+	}
+
+	static Target createTarget(final String name) throws Exception {
+		if ("core".equals(name)) {
+			return coreTarget(new MavenBadges());
+		} else if ("lambda".equals(name)) {
+			return lambdaTarget(new MavenBadgesLambda());
+		} else if ("servlet".equals(name)) {
+			return httpTarget(startJetty());
+		} else if ("nio".equals(name)) {
+			final NioHttpServer server = new NioHttpServer(new MavenBadges(), new InetSocketAddress("127.0.0.1", 0),
+					NioServerRunner.WORKERS);
+			server.start();
+			return httpTarget("http://127.0.0.1:" + server.getLocalAddress().getPort());
+		} else if ("http".equals(name)) {
+			return httpTarget(System.getProperty("url", "http://127.0.0.1:" + JettyServerRunner.PORT));
+		}
+		throw new IllegalArgumentException("Invalid target: " + name);
+	}
+
+	static Target coreTarget(final MavenBadges mb) {
+		return new Target() {
+			@Override
+			public int call(final String path) throws Exception {
+				try {
+					return mb.process(PathInfo.parse(path)).getCode();
+				} catch (FileNotFoundException e) {
+					return HttpURLConnection.HTTP_NOT_FOUND;
+				} catch (SocketTimeoutException e) {
+					return HttpURLConnection.HTTP_GATEWAY_TIMEOUT;
+				} catch (IOException e) {
+					return HttpURLConnection.HTTP_INTERNAL_ERROR;
+				}
+			}
+		};
+	}
+
+	static Target lambdaTarget(final MavenBadgesLambda lambda) {
+		final Map<String, String> stageVariables = Collections.singletonMap("debug", "false");
+		final Context context = new NullContext();
+		return new Target() {
+			@Override
+			public int call(final String path) throws Exception {
+				final APIGatewayV2HTTPEvent event = new APIGatewayV2HTTPEvent();
+				event.setRawPath(path);
+				event.setStageVariables(stageVariables);
+				return lambda.handleRequest(event, context).getStatusCode();
+			}
+		};
+	}
+
+	static Target httpTarget(final String baseURL) {
+		return new Target() {
+			@Override
+			public int call(final String path) throws Exception {
+				final HttpURLConnection conn = (HttpURLConnection) new URL(baseURL + path).openConnection();
+				conn.setInstanceFollowRedirects(false);
+				conn.setConnectTimeout(Constants.CONNECTION_TIMEOUT);
+				conn.setReadTimeout(Constants.READ_TIMEOUT * 2);
+				final int code = conn.getResponseCode();
+				// consume body to keep-alive connection
+				final InputStream is = ((code >= 400) ? conn.getErrorStream() : conn.getInputStream());
+				if (is != null) {
+					try {
+						final byte[] buf = new byte[4096];
+						while (is.read(buf) >= 0) {
+						}
+					} finally {
+						is.close();
+					}
+				}
+				return code;
+			}
+		};
+	}
+
+	private static String startJetty() throws Exception {
+		final Server server = new Server(new InetSocketAddress("127.0.0.1", 0));
+		final ServletHandler handler = new ServletHandler();
+		server.setHandler(handler);
+		handler.addServletWithMapping(MavenBadgesServlet.class, "/*");
+		server.start();
+		return "http://127.0.0.1:" + ((NetworkConnector) server.getConnectors()[0]).getLocalPort();
+	}
+
+	private static final class NullContext implements Context {
+		private final LambdaLogger logger = new LambdaLogger() {
+			@Override
+			public void log(final String message) {
+			}
+
+			@Override
+			public void log(final byte[] message) {
+			}
+		};
+
+		@Override
+		public String getAwsRequestId() {
+			return "loadtest";
+		}
+
+		@Override
+		public String getLogGroupName() {
+			return null;
+		}
+
+		@Override
+		public String getLogStreamName() {
+			return null;
+		}
+
+		@Override
+		public String getFunctionName() {
+			return "mavenbadges";
+		}
+
+		@Override
+		public String getFunctionVersion() {
+			return null;
+		}
+
+		@Override
+		public String getInvokedFunctionArn() {
+			return null;
+		}
+
+		@Override
+		public CognitoIdentity getIdentity() {
+			return null;
+		}
+
+		@Override
+		public ClientContext getClientContext() {
+			return null;
+		}
+
+		@Override
+		public int getRemainingTimeInMillis() {
+			return Integer.MAX_VALUE;
+		}
+
+		@Override
+		public int getMemoryLimitInMB() {
+			return 0;
+		}
+
+		@Override
+		public LambdaLogger getLogger() {
+			return logger;
+		}
+	}
+}
@@ -0,0 +1,308 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.javastack.mavenbadges;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local Maven Central simulator, serves synthetic maven-metadata.xml with configurable latency,
+ * error injection, versions list size and conditional requests (ETag / Last-Modified, 304)
+ * <p>
+ * Note: {@link MavenBadges} does not send conditional requests yet (no If-None-Match /
+ * If-Modified-Since, no ResponseCache installed), so the 304 path is only exercised by tests.
+ * <p>
+ * URL: http://host:port/maven2/${groupId}/${artifactId}/maven-metadata.xml
+ *
+ * @author Guillermo Grandes / guillermo.grandes[at]gmail.com
+ */
+public class MetadataSimulator {
+	static final String PREFIX = "/maven2/";
+	static final String SUFFIX = "/maven-metadata.xml";
+
+	private final Config config;
+	private final ConcurrentHashMap<String, byte[]> documents = new ConcurrentHashMap<String, byte[]>();
+	private final String lastModified;
+	private HttpServer server;
+	private ExecutorService executor;
+	// counters
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong notModified = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+	private final AtomicLong notFound = new AtomicLong();
+	private final AtomicLong timeouts = new AtomicLong();
+
+	public MetadataSimulator(final Config config) {
+		this.config = config;
+		final SimpleDateFormat df = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.ENGLISH);
+		df.setTimeZone(TimeZone.getTimeZone("GMT"));
+		this.lastModified = df.format(new Date());
+	}
+
+	public void start() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", config.port), 1024);
+		executor = Executors.newCachedThreadPool(); // latency is simulated with sleep
+		server.setExecutor(executor);
+		server.createContext(PREFIX, new HttpHandler() {
+			@Override
+			public void handle(final HttpExchange exchange) throws IOException {
+				try {
+					handle0(exchange);
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		server.start();
+	}
+
+	public void stop() {
+		if (server != null) {
+			server.stop(0);
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return URL expression suitable for {@link MavenBadges#MavenBadges(String)}
+	 */
+	public String getMetadataURL() {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + PREFIX + "${groupId}/${artifactId}"
+				+ SUFFIX;
+	}
+
+	public long getRequests() {
+		return requests.get();
+	}
+
+	public long getNotModified() {
+		return notModified.get();
+	}
+
+	public long getErrors() {
+		return errors.get();
+	}
+
+	public long getNotFound() {
+		return notFound.get();
+	}
+
+	public long getTimeouts() {
+		return timeouts.get();
+	}
+
+	public void resetCounters() {
+		requests.set(0);
+		notModified.set(0);
+		errors.set(0);
+		notFound.set(0);
+		timeouts.set(0);
+	}
+
+	private void handle0(final HttpExchange exchange) throws IOException {
+		requests.incrementAndGet();
+		final String path = exchange.getRequestURI().getPath();
+		if (!path.startsWith(PREFIX) || !path.endsWith(SUFFIX)) {
+			notFound.incrementAndGet();
+			exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+			return;
+		}
+		sleep(config.latency.next());
+		final double dice = ThreadLocalRandom.current().nextDouble();
+		if (dice < config.timeoutRate) {
+			timeouts.incrementAndGet();
+			sleep(config.timeoutDelay);
+			return;
+		} else if (dice < (config.timeoutRate + config.errorRate)) {
+			errors.incrementAndGet();
+			exchange.sendResponseHeaders(HttpURLConnection.HTTP_INTERNAL_ERROR, -1);
+			return;
+		} else if (dice < (config.timeoutRate + config.errorRate + config.notFoundRate)) {
+			notFound.incrementAndGet();
+			exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+			return;
+		}
+		final String key = path.substring(PREFIX.length(), path.length() - SUFFIX.length());
+		byte[] doc = documents.get(key);
+		if (doc == null) {
+			doc = generate(key);
+			documents.putIfAbsent(key, doc);
+		}
+		final String etag = "\"" + Integer.toHexString(key.hashCode()) + "-" + config.versions + "\"";
+		exchange.getResponseHeaders().set("ETag", etag);
+		exchange.getResponseHeaders().set("Last-Modified", lastModified);
+		if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))
+				|| lastModified.equals(exchange.getRequestHeaders().getFirst("If-Modified-Since"))) {
+			notModified.incrementAndGet();
+			exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+			return;
+		}
+		exchange.getResponseHeaders().set("Content-Type", "text/xml");
+		exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, doc.length);
+		final OutputStream os = exchange.getResponseBody();
+		os.write(doc);
+		os.flush();
+	}
+
+	/**
+	 * Synthetic metadata: versions 1.0.0 upwards, with some pre-releases (beta/rc) before each minor
+	 */
+	private byte[] generate(final String key) {
+		final int slash = key.lastIndexOf('/');
+		final String groupId = key.substring(0, Math.max(slash, 0)).replace('/', '.');
+		final String artifactId = key.substring(slash + 1);
+		final StringBuilder versions = new StringBuilder(config.versions * 40);
+		String release = null;
+		int major = 1, minor = 0, patch = 0;
+		for (int i = 0; i < config.versions; i++) {
+			final String v;
+			if ((patch == 0) && ((i % 3) == 1)) {
+				v = major + "." + minor + ".0-" + (((i & 1) == 0) ? "beta1" : "rc1");
+			} else {
+				v = major + "." + minor + "." + patch;
+				release = v;
+				if (++patch > 9) {
+					patch = 0;
+					if (++minor > 9) {
+						minor = 0;
+						major++;
+					}
+				}
+			}
+			versions.append("      <version>").append(v).append("</version>\n");
+		}
+		final StringBuilder sb = new StringBuilder(versions.length() + 512);
+		sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		sb.append("<metadata>\n");
+		sb.append("  <groupId>").append(groupId).append("</groupId>\n");
+		sb.append("  <artifactId>").append(artifactId).append("</artifactId>\n");
+		sb.append("  <versioning>\n");
+		if (release != null) {
+			sb.append("    <latest>").append(release).append("</latest>\n");
+			sb.append("    <release>").append(release).append("</release>\n");
+		}
+		sb.append("    <versions>\n").append(versions).append("    </versions>\n");
+		sb.append("    <lastUpdated>20211231235959</lastUpdated>\n");
+		sb.append("  </versioning>\n");
+		sb.append("</metadata>\n");
+		return sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static void sleep(final long millis) {
+		if (millis > 0) {
+			try {
+				Thread.sleep(millis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	public static class Config {
+		public int port = 0; // ephemeral
+		public Latency latency = Latency.parse("fixed:0");
+		public double errorRate = 0; // HTTP 500
+		public double notFoundRate = 0; // HTTP 404
+		public double timeoutRate = 0; // no response until timeoutDelay
+		public long timeoutDelay = 11000; // greater than Constants.READ_TIMEOUT
+		public int versions = 20; // size of <versions>
+
+		/**
+		 * Load from system properties (sim.port, sim.latency, sim.errorRate, sim.notFoundRate,
+		 * sim.timeoutRate, sim.timeoutDelay, sim.versions)
+		 */
+		public static Config fromSystemProperties() {
+			final Config c = new Config();
+			c.port = Integer.getInteger("sim.port", c.port);
+			c.latency = Latency.parse(System.getProperty("sim.latency", "fixed:0"));
+			c.errorRate = Double.parseDouble(System.getProperty("sim.errorRate", "0"));
+			c.notFoundRate = Double.parseDouble(System.getProperty("sim.notFoundRate", "0"));
+			c.timeoutRate = Double.parseDouble(System.getProperty("sim.timeoutRate", "0"));
+			c.timeoutDelay = Long.getLong("sim.timeoutDelay", c.timeoutDelay);
+			c.versions = Integer.getInteger("sim.versions", c.versions);
+			return c;
+		}
+
+		@Override
+		public String toString() {
+			return "port=" + port + " latency=" + latency + " errorRate=" + errorRate + " notFoundRate="
+					+ notFoundRate + " timeoutRate=" + timeoutRate + " timeoutDelay=" + timeoutDelay
+					+ " versions=" + versions;
+		}
+	}
+
+	/**
+	 * Latency distribution (millis): fixed:N, uniform:MIN:MAX, exp:MEAN, lognormal:MEDIAN:SIGMA
+	 */
+	public static class Latency {
+		private final String spec;
+		private final String type;
+		private final double a, b;
+
+		private Latency(final String spec, final String type, final double a, final double b) {
+			this.spec = spec;
+			this.type = type;
+			this.a = a;
+			this.b = b;
+		}
+
+		public static Latency parse(final String spec) {
+			final String[] t = spec.split(":");
+			final double a = ((t.length > 1) ? Double.parseDouble(t[1]) : 0);
+			final double b = ((t.length > 2) ? Double.parseDouble(t[2]) : 0);
+			if (!"fixed".equals(t[0]) && !"uniform".equals(t[0]) && !"exp".equals(t[0])
+					&& !"lognormal".equals(t[0])) {
+				throw new IllegalArgumentException("Invalid latency: " + spec);
+			}
+			return new Latency(spec, t[0], a, b);
+		}
+
+		public long next() {
+			final ThreadLocalRandom r = ThreadLocalRandom.current();
+			final double v;
+			if ("uniform".equals(type)) {
+				v = a + (r.nextDouble() * (b - a));
+			} else if ("exp".equals(type)) {
+				v = -a * Math.log(1 - r.nextDouble());
+			} else if ("lognormal".equals(type)) {
+				v = a * Math.exp(b * r.nextGaussian());
+			} else {
+				v = a;
+			}
+			return Math.round(v);
+		}
+
+		@Override
+		public String toString() {
+			return spec;
+		}
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.javastack.mavenbadges;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import org.junit.Test;
+
+public class MetadataSimulatorTest {
+	private static HttpURLConnection open(final MetadataSimulator sim, final String artifact) throws Exception {
+		final String url = sim.getMetadataURL().replace("${groupId}", "org/example").replace("${artifactId}",
+				artifact);
+		final HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+		conn.setUseCaches(false);
+		return conn;
+	}
+
+	private static void consume(final HttpURLConnection conn) throws Exception {
+		final InputStream is = conn.getInputStream();
+		try {
+			final byte[] buf = new byte[4096];
+			while (is.read(buf) >= 0) {
+			}
+		} finally {
+			is.close();
+		}
+	}
+
+	@Test
+	public void testConditionalRequests() throws Exception {
+		final MetadataSimulator sim = new MetadataSimulator(new MetadataSimulator.Config());
+		sim.start();
+		try {
+			HttpURLConnection conn = open(sim, "a");
+			assertEquals(HttpURLConnection.HTTP_OK, conn.getResponseCode());
+			final String etag = conn.getHeaderField("ETag");
+			final String lastModified = conn.getHeaderField("Last-Modified");
+			assertNotNull(etag);
+			assertNotNull(lastModified);
+			consume(conn);
+
+			conn = open(sim, "a");
+			conn.setRequestProperty("If-None-Match", etag);
+			assertEquals(HttpURLConnection.HTTP_NOT_MODIFIED, conn.getResponseCode());
+			conn.disconnect();
+
+			conn = open(sim, "a");
+			conn.setRequestProperty("If-Modified-Since", lastModified);
+			assertEquals(HttpURLConnection.HTTP_NOT_MODIFIED, conn.getResponseCode());
+			conn.disconnect();
+
+			conn = open(sim, "a");
+			conn.setRequestProperty("If-None-Match", "\"other\"");
+			assertEquals(HttpURLConnection.HTTP_OK, conn.getResponseCode());
+			consume(conn);
+
+			assertEquals(4, sim.getRequests());
+			assertEquals(2, sim.getNotModified());
+		} finally {
+			sim.stop();
+		}
+	}
+
+	@Test
+	public void testErrorInjection() throws Exception {
+		final MetadataSimulator.Config config = new MetadataSimulator.Config();
+		config.errorRate = 1;
+		final MetadataSimulator sim = new MetadataSimulator(config);
+		sim.start();
+		try {
+			final HttpURLConnection conn = open(sim, "b");
+			assertEquals(HttpURLConnection.HTTP_INTERNAL_ERROR, conn.getResponseCode());
+			conn.disconnect();
+			assertEquals(1, sim.getErrors());
+			assertEquals(0, sim.getNotModified());
+		} finally {
+			sim.stop();
+		}
+	}
+}
@@ -0,0 +1,593 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.javastack.mavenbadges;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.javastack.mavenbadges.MavenBadges.PathInfo;
+import org.javastack.mavenbadges.MavenBadges.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+/**
+ * Minimal HTTP/1.1 server (GET/HEAD only) on top of NIO, without servlet container.
+ * <p>
+ * One selector thread does all socket I/O (keep-alive, pipelining), rendered responses are cached as
+ * direct buffers and served from the selector thread; cache misses are rendered by
+ * {@link MavenBadges#process(PathInfo)} in a small worker pool (it may block on upstream).
+ *
+ * @author Guillermo Grandes / guillermo.grandes[at]gmail.com
+ */
+public class NioHttpServer implements Closeable {
+	static final Logger log = LoggerFactory.getLogger(NioHttpServer.class);
+	private static final int MAX_REQUEST_HEADER = 8192;
+	private static final int KEEPALIVE_TIMEOUT = 30000;
+	private static final int RESPONSE_CACHE_SIZE = 128;
+	private static final long RESPONSE_CACHE_TTL = TimeUnit.HOURS.toMillis(1); // max-age=3600
+	private static final ByteBuffer EOH = directBuffer("\r\n");
+	// HTTP/1.0 closes by default, keep-alive must be explicit
+	private static final ByteBuffer EOH_KEEPALIVE = directBuffer("Connection: keep-alive\r\n\r\n");
+	private static final ByteBuffer EOH_CLOSE = directBuffer("Connection: close\r\n\r\n");
+	// fixed error responses, encoded once
+	private static final Rendered BAD_REQUEST = Rendered.fixed(HttpURLConnection.HTTP_BAD_REQUEST, "Bad Request");
+	private static final Rendered NOT_FOUND = Rendered.fixed(HttpURLConnection.HTTP_NOT_FOUND, "Not Found");
+	private static final Rendered BAD_METHOD = Rendered.fixed(HttpURLConnection.HTTP_BAD_METHOD,
+			"Method Not Allowed");
+	private static final Rendered HEADER_TOO_LARGE = Rendered.fixed(431, "Request Header Fields Too Large");
+	private static final Rendered INTERNAL_ERROR = Rendered.fixed(HttpURLConnection.HTTP_INTERNAL_ERROR,
+			"Internal Server Error");
+	private static final Rendered GATEWAY_TIMEOUT = Rendered.fixed(HttpURLConnection.HTTP_GATEWAY_TIMEOUT,
+			"Timeout");
+
+	private final MavenBadges mb;
+	private final InetSocketAddress address;
+	private final ExecutorService workers;
+	private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<Runnable>();
+	private final LinkedHashMap<String, Rendered> responseCache;
+	private Selector selector;
+	private ServerSocketChannel server;
+	private Thread selectorThread;
+	private volatile boolean running = false;
+
+	public NioHttpServer(final MavenBadges mb, final InetSocketAddress address, final int workers) {
+		this.mb = mb;
+		this.address = address;
+		this.workers = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+			private final AtomicInteger counter = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable r) {
+				final Thread t = new Thread(r, "mavenbadges-worker-" + counter.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		// accessed only from selector thread
+		this.responseCache = new LinkedHashMap<String, Rendered>(16, 0.75f, true) {
+			private static final long serialVersionUID = 42L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, Rendered> eldest) {
+				return size() > RESPONSE_CACHE_SIZE;
+			}
+		};
+	}
+
+	public void start() throws IOException {
+		selector = Selector.open();
+		server = ServerSocketChannel.open();
+		server.setOption(StandardSocketOptions.SO_REUSEADDR, Boolean.TRUE);
+		server.bind(address, 1024);
+		server.configureBlocking(false);
+		server.register(selector, SelectionKey.OP_ACCEPT);
+		running = true;
+		selectorThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				loop();
+			}
+		}, "mavenbadges-selector");
+		selectorThread.start();
+		log.info("Listening on " + server.getLocalAddress());
+	}
+
+	public InetSocketAddress getLocalAddress() throws IOException {
+		return (InetSocketAddress) server.getLocalAddress();
+	}
+
+	public void join() throws InterruptedException {
+		selectorThread.join();
+	}
+
+	@Override
+	public void close() {
+		running = false;
+		if (selector != null) {
+			selector.wakeup();
+		}
+		workers.shutdown();
+	}
+
+	private void loop() {
+		long lastExpire = System.currentTimeMillis();
+		try {
+			while (running) {
+				selector.select(1000);
+				Runnable task;
+				while ((task = selectorTasks.poll()) != null) {
+					try {
+						task.run();
+					} catch (RuntimeException e) {
+						log.error("Selector task error: " + e, e);
+					}
+				}
+				final Iterator<SelectionKey> i = selector.selectedKeys().iterator();
+				while (i.hasNext()) {
+					final SelectionKey key = i.next();
+					i.remove();
+					if (!key.isValid()) {
+						continue;
+					} else if (key.isAcceptable()) {
+						accept();
+						continue;
+					}
+					try {
+						final Connection c = (Connection) key.attachment();
+						if (key.isWritable() && flush(c)) {
+							processInput(c);
+						}
+						if (key.isValid() && key.isReadable()) {
+							read(c);
+						}
+					} catch (IOException e) {
+						log.debug("Connection error: " + e);
+						closeConnection(key);
+					} catch (RuntimeException e) {
+						log.error("Connection error: " + e, e);
+						closeConnection(key);
+					}
+				}
+				final long now = System.currentTimeMillis();
+				if ((now - lastExpire) >= 1000) {
+					expireIdle(now);
+					lastExpire = now;
+				}
+			}
+		} catch (Exception e) {
+			log.error("Selector error: " + e, e);
+		} finally {
+			for (final SelectionKey key : selector.keys()) {
+				closeSilent(key.channel());
+			}
+			closeSilent(selector);
+		}
+	}
+
+	/**
+	 * Errors here never close the listener, only the accepted channel (if any)
+	 */
+	private void accept() {
+		SocketChannel ch = null;
+		try {
+			ch = server.accept();
+			if (ch == null) {
+				return;
+			}
+			ch.configureBlocking(false);
+			ch.setOption(StandardSocketOptions.TCP_NODELAY, Boolean.TRUE);
+			final Connection c = new Connection(ch);
+			c.key = ch.register(selector, SelectionKey.OP_READ, c);
+		} catch (IOException e) {
+			log.warn("Accept error: " + e);
+			closeSilent(ch);
+		} catch (RuntimeException e) {
+			log.error("Accept error: " + e, e);
+			closeSilent(ch);
+		}
+	}
+
+	private void read(final Connection c) throws IOException {
+		final int n = c.ch.read(c.in);
+		if (n < 0) {
+			closeConnection(c.key);
+			return;
+		}
+		c.lastActivity = System.currentTimeMillis();
+		processInput(c);
+	}
+
+	/**
+	 * Parse and serve every complete request in input buffer (pipelining), in order. Stop while a
+	 * request is rendering in a worker or there are unwritten responses (backpressure).
+	 */
+	private void processInput(final Connection c) throws IOException {
+		while (!c.busy && !c.closing && c.out.isEmpty()) {
+			final int end = endOfHeader(c.in);
+			if (end < 0) {
+				if (!c.in.hasRemaining()) {
+					send(c, null, HEADER_TOO_LARGE, true);
+				}
+				break;
+			}
+			final Request req = Request.parse(new String(c.in.array(), 0, end, StandardCharsets.ISO_8859_1));
+			c.in.flip();
+			c.in.position(end);
+			c.in.compact();
+			handle(c, req);
+		}
+		updateInterest(c);
+	}
+
+	private void handle(final Connection c, final Request req) throws IOException {
+		if (req == null) {
+			send(c, null, BAD_REQUEST, true);
+			return;
+		} else if (req.hasBody) {
+			// request bodies are not supported, unable to keep connection in sync
+			send(c, req, BAD_REQUEST, true);
+			return;
+		} else if (!"GET".equals(req.method) && !"HEAD".equals(req.method)) {
+			send(c, req, BAD_METHOD, req.close);
+			return;
+		}
+		final Rendered cached = responseCache.get(req.path);
+		if ((cached != null) && (cached.expires > System.currentTimeMillis())) {
+			send(c, req, cached, req.close);
+			return;
+		}
+		c.busy = true;
+		workers.execute(new Runnable() {
+			@Override
+			public void run() {
+				final Rendered r = render(req, c.remoteAddress);
+				selectorTasks.add(new Runnable() {
+					@Override
+					public void run() {
+						complete(c, req, r);
+					}
+				});
+				selector.wakeup();
+			}
+		});
+	}
+
+	private void complete(final Connection c, final Request req, final Rendered r) {
+		if (r.expires > 0) {
+			responseCache.put(req.path, r);
+		}
+		c.busy = false;
+		if (!c.key.isValid()) {
+			return;
+		}
+		try {
+			if (send(c, req, r, req.close)) {
+				processInput(c);
+			}
+		} catch (IOException e) {
+			log.debug("Connection error: " + e);
+			closeConnection(c.key);
+		} catch (RuntimeException e) {
+			log.error("Connection error: " + e, e);
+			closeConnection(c.key);
+		}
+	}
+
+	private Rendered render(final Request req, final String remoteAddress) {
+		try {
+			MDC.put(Constants.MDC_IP, remoteAddress);
+			MDC.put(Constants.MDC_ID, req.id);
+			final Response r = mb.process(PathInfo.parse(req.path));
+			return Rendered.of(r);
+		} catch (FileNotFoundException e) {
+			log.error("Not found: " + e);
+			return NOT_FOUND;
+		} catch (SocketTimeoutException e) {
+			log.error("Timeout: " + e);
+			return GATEWAY_TIMEOUT;
+		} catch (Exception e) {
+			log.error("Internal Server Error: " + e, e);
+			return INTERNAL_ERROR;
+		} finally {
+			MDC.clear();
+		}
+	}
+
+	/**
+	 * @return true if response was fully written and connection remains open
+	 */
+	private boolean send(final Connection c, final Request req, final Rendered r, final boolean close)
+			throws IOException {
+		c.out.add(r.head.duplicate());
+		c.out.add((close ? EOH_CLOSE : ((req != null) && req.http10) ? EOH_KEEPALIVE : EOH).duplicate());
+		if ((req == null) || !"HEAD".equals(req.method)) {
+			c.out.add(r.body.duplicate());
+		}
+		c.closing |= close;
+		AccessLog.log(((req != null) ? req.id : RequestId.next()), c.remoteAddress,
+				((req != null) ? req.path : null), r.code, ((req != null) ? req.begin : System.nanoTime()));
+		return flush(c);
+	}
+
+	/**
+	 * @return true if output was fully written and connection remains open
+	 */
+	private boolean flush(final Connection c) throws IOException {
+		if (!c.out.isEmpty()) {
+			c.ch.write(c.out.toArray(new ByteBuffer[c.out.size()]));
+			while (!c.out.isEmpty() && !c.out.peek().hasRemaining()) {
+				c.out.poll();
+			}
+			c.lastActivity = System.currentTimeMillis();
+		}
+		if (c.out.isEmpty() && c.closing) {
+			closeConnection(c.key);
+			return false;
+		}
+		updateInterest(c);
+		return c.out.isEmpty();
+	}
+
+	private static void updateInterest(final Connection c) {
+		if (!c.key.isValid()) {
+			return;
+		}
+		int ops = 0;
+		if (!c.out.isEmpty()) {
+			ops |= SelectionKey.OP_WRITE;
+		} else if (!c.busy && !c.closing) {
+			ops |= SelectionKey.OP_READ;
+		}
+		c.key.interestOps(ops);
+	}
+
+	private void expireIdle(final long now) {
+		for (final SelectionKey key : selector.keys()) {
+			final Object att = key.attachment();
+			if (att instanceof Connection) {
+				final Connection c = (Connection) att;
+				if (!c.busy && ((now - c.lastActivity) > KEEPALIVE_TIMEOUT)) {
+					closeConnection(key);
+				}
+			}
+		}
+	}
+
+	private static void closeConnection(final SelectionKey key) {
+		key.cancel();
+		closeSilent(key.channel());
+	}
+
+	private static int endOfHeader(final ByteBuffer in) {
+		final byte[] buf = in.array();
+		final int len = in.position();
+		for (int i = 3; i < len; i++) {
+			if ((buf[i] == '\n') && (buf[i - 1] == '\r') && (buf[i - 2] == '\n') && (buf[i - 3] == '\r')) {
+				return i + 1;
+			}
+		}
+		return -1;
+	}
+
+	private static ByteBuffer directBuffer(final String str) {
+		return directBuffer(str.getBytes(StandardCharsets.ISO_8859_1));
+	}
+
+	private static ByteBuffer heapBuffer(final String str) {
+		return heapBuffer(str.getBytes(StandardCharsets.ISO_8859_1));
+	}
+
+	private static ByteBuffer heapBuffer(final byte[] bytes) {
+		return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+	}
+
+	private static ByteBuffer directBuffer(final byte[] bytes) {
+		final ByteBuffer bb = ByteBuffer.allocateDirect(bytes.length);
+		bb.put(bytes).flip();
+		return bb.asReadOnlyBuffer();
+	}
+
+	private static final void closeSilent(final Closeable c) {
+		if (c != null) {
+			try {
+				c.close();
+			} catch (Throwable ign) {
+			}
+		}
+	}
+
+	private static String reason(final int code) {
+		switch (code) {
+		case HttpURLConnection.HTTP_OK:
+			return "OK";
+		case HttpURLConnection.HTTP_MOVED_TEMP:
+			return "Found";
+		case HttpURLConnection.HTTP_BAD_REQUEST:
+			return "Bad Request";
+		case HttpURLConnection.HTTP_NOT_FOUND:
+			return "Not Found";
+		case HttpURLConnection.HTTP_BAD_METHOD:
+			return "Method Not Allowed";
+		case 431:
+			return "Request Header Fields Too Large";
+		case HttpURLConnection.HTTP_INTERNAL_ERROR:
+			return "Internal Server Error";
+		case HttpURLConnection.HTTP_UNAVAILABLE:
+			return "Service Unavailable";
+		case HttpURLConnection.HTTP_GATEWAY_TIMEOUT:
+			return "Gateway Timeout";
+		default:
+			return "Unknown";
+		}
+	}
+
+	private static final class Connection {
+		final SocketChannel ch;
+		final String remoteAddress;
+		final ByteBuffer in = ByteBuffer.allocate(MAX_REQUEST_HEADER);
+		final ArrayDeque<ByteBuffer> out = new ArrayDeque<ByteBuffer>();
+		SelectionKey key;
+		long lastActivity = System.currentTimeMillis();
+		boolean busy = false;
+		boolean closing = false;
+
+		Connection(final SocketChannel ch) {
+			this.ch = ch;
+			this.remoteAddress = ch.socket().getInetAddress().getHostAddress();
+		}
+	}
+
+	static final class Request {
+		final String method;
+		final String path;
+		final boolean http10;
+		final boolean close;
+		final boolean hasBody;
+		final long begin = System.nanoTime();
+		final String id = RequestId.next();
+
+		private Request(final String method, final String path, final boolean http10, final boolean close,
+				final boolean hasBody) {
+			this.method = method;
+			this.path = path;
+			this.http10 = http10;
+			this.close = close;
+			this.hasBody = hasBody;
+		}
+
+		/**
+		 * @return request or null if malformed
+		 */
+		static Request parse(final String header) {
+			final String[] lines = header.split("\r\n");
+			if ((lines.length == 0) || lines[0].trim().isEmpty()) {
+				return null;
+			}
+			final String[] requestLine = lines[0].split(" ");
+			if ((requestLine.length != 3) || !requestLine[2].startsWith("HTTP/1.")) {
+				return null;
+			}
+			final boolean http10 = "HTTP/1.0".equals(requestLine[2]);
+			String connection = null;
+			boolean hasBody = false;
+			for (int i = 1; i < lines.length; i++) {
+				final int colon = lines[i].indexOf(':');
+				if (colon <= 0) {
+					continue;
+				}
+				final String name = lines[i].substring(0, colon).trim().toLowerCase(Locale.ENGLISH);
+				final String value = lines[i].substring(colon + 1).trim();
+				if ("connection".equals(name)) {
+					connection = value.toLowerCase(Locale.ENGLISH);
+				} else if ("content-length".equals(name)) {
+					hasBody |= !"0".equals(value);
+				} else if ("transfer-encoding".equals(name)) {
+					hasBody = true;
+				}
+			}
+			final boolean close = ((connection != null) && connection.contains("close")) //
+					|| (http10 && ((connection == null) || !connection.contains("keep-alive")));
+			String path = requestLine[1];
+			final int query = path.indexOf('?');
+			if (query >= 0) {
+				path = path.substring(0, query);
+			}
+			return new Request(requestLine[0], path, http10, close, hasBody);
+		}
+	}
+
+	/**
+	 * Encoded response: head (status line and headers, without final CRLF) and body, as read-only
+	 * buffers, shared between connections with {@link ByteBuffer#duplicate()}; direct for cached and
+	 * fixed responses, heap for the rest
+	 */
+	private static final class Rendered {
+		final int code;
+		final ByteBuffer head;
+		final ByteBuffer body;
+		final long expires;
+
+		private Rendered(final int code, final ByteBuffer head, final ByteBuffer body, final long expires) {
+			this.code = code;
+			this.head = head;
+			this.body = body;
+			this.expires = expires;
+		}
+
+		/**
+		 * Fixed plain text response (shared constant, direct buffers)
+		 */
+		static Rendered fixed(final int code, final String msg) {
+			final Response r = new Response();
+			r.setCode(code);
+			r.setContentType("text/plain; charset=ISO-8859-1");
+			r.setBody(msg);
+			return of(r, true, false);
+		}
+
+		/**
+		 * Cacheable responses are encoded in direct buffers (long lived), others in heap buffers
+		 */
+		static Rendered of(final Response r) {
+			// same rule than Cache-Control: public, max-age=3600
+			final boolean cacheable = (r.getCode() == HttpURLConnection.HTTP_OK)
+					|| (r.getCode() == HttpURLConnection.HTTP_MOVED_TEMP);
+			return of(r, cacheable, cacheable);
+		}
+
+		private static Rendered of(final Response r, final boolean direct, final boolean cacheable) {
+			final byte[] body = ((r.getBody() != null) //
+					? r.getBody().getBytes(StandardCharsets.ISO_8859_1) //
+					: new byte[0]);
+			final StringBuilder sb = new StringBuilder(256);
+			sb.append("HTTP/1.1 ").append(r.getCode()).append(' ').append(reason(r.getCode())).append("\r\n");
+			sb.append("Content-Type: ").append(r.getContentType()).append("\r\n");
+			sb.append("Content-Length: ").append(body.length).append("\r\n");
+			for (final Entry<String, String> e : r.getHeaders().entrySet()) {
+				sb.append(e.getKey()).append(": ").append(e.getValue()).append("\r\n");
+			}
+			final String head = sb.toString();
+			return new Rendered(r.getCode(), //
+					(direct ? directBuffer(head) : heapBuffer(head)), //
+					(direct ? directBuffer(body) : heapBuffer(body)), //
+					(cacheable ? System.currentTimeMillis() + RESPONSE_CACHE_TTL : 0));
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package org.javastack.mavenbadges;
+
+import java.net.InetSocketAddress;
+
+public class NioServerRunner {
+	public static final int PORT = 8080;
+	public static final int WORKERS = 16;
+
+	public static void main(String[] args) throws Exception {
+		// Create a basic NIO server object that will listen on port 8080.
+		// No servlet container here: single selector thread for socket I/O,
+		// small pool of workers for MavenBadges.process (may block on upstream).
+		final NioHttpServer server = new NioHttpServer(new MavenBadges(), new InetSocketAddress(PORT), WORKERS);
+		// Start things up!
+		server.start();
+		// Wait until the server thread is done executing.
+		server.join();
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.javastack.mavenbadges;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.javastack.mavenbadges.NioHttpServer.Request;
+import org.junit.Test;
+
+public class NioHttpServerTest {
+	@Test
+	public void testParseMalformed() {
+		assertNull(Request.parse(""));
+		assertNull(Request.parse("\r\n\r\n"));
+		assertNull(Request.parse("   \r\n\r\n"));
+		assertNull(Request.parse("GET /\r\n\r\n"));
+		assertNull(Request.parse("GET / HTTP/1.1 extra\r\n\r\n"));
+		assertNull(Request.parse("GET / HTTP/2.0\r\n\r\n"));
+		assertNull(Request.parse("GET / FTP/1.0\r\n\r\n"));
+	}
+
+	@Test
+	public void testParseKeepAlive() {
+		Request req = Request.parse("GET / HTTP/1.1\r\nHost: x\r\n\r\n");
+		assertFalse(req.http10);
+		assertFalse(req.close);
+		req = Request.parse("GET / HTTP/1.1\r\nConnection: Close\r\n\r\n");
+		assertTrue(req.close);
+		req = Request.parse("GET / HTTP/1.0\r\n\r\n");
+		assertTrue(req.http10);
+		assertTrue(req.close);
+		req = Request.parse("GET / HTTP/1.0\r\nConnection: Keep-Alive\r\n\r\n");
+		assertTrue(req.http10);
+		assertFalse(req.close);
+	}
+
+	@Test
+	public void testParseBodyAndQuery() {
+		assertFalse(Request.parse("GET / HTTP/1.1\r\nContent-Length: 0\r\n\r\n").hasBody);
+		assertTrue(Request.parse("POST / HTTP/1.1\r\nContent-Length: 5\r\n\r\n").hasBody);
+		assertTrue(Request.parse("POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n").hasBody);
+		final Request req = Request.parse("HEAD /g/a/badge.svg?style=flat HTTP/1.1\r\n\r\n");
+		assertEquals("HEAD", req.method);
+		assertEquals("/g/a/badge.svg", req.path);
+	}
+
+	@Test
+	public void testPipeliningAndHead() throws Exception {
+		final File dir = Files.createTempDirectory("mavenbadges").toFile();
+		final File metadata = new File(dir, "g/a/maven-metadata.xml");
+		metadata.getParentFile().mkdirs();
+		Files.write(metadata.toPath(), ("<metadata><versioning><release>1.2.3</release>" //
+				+ "<versions><version>1.2.3</version></versions></versioning></metadata>")
+						.getBytes(StandardCharsets.UTF_8));
+		final MavenBadges mb = new MavenBadges(dir.toURI() + "${groupId}/${artifactId}/maven-metadata.xml");
+		final NioHttpServer server = new NioHttpServer(mb, new InetSocketAddress("127.0.0.1", 0), 2);
+		server.start();
+		try {
+			final Socket s = new Socket("127.0.0.1", server.getLocalAddress().getPort());
+			try {
+				s.setSoTimeout(10000);
+				final OutputStream os = s.getOutputStream();
+				os.write(("GET /g/a/badge.svg HTTP/1.1\r\n\r\n" //
+						+ "GET /x HTTP/1.1\r\n\r\n" //
+						+ "HEAD /g/a/badge.svg HTTP/1.1\r\n\r\n" //
+						+ "GET /g/a/link HTTP/1.1\r\nConnection: close\r\n\r\n")
+								.getBytes(StandardCharsets.ISO_8859_1));
+				os.flush();
+				final List<String[]> responses = readResponses(s.getInputStream(), 2);
+				assertEquals(4, responses.size());
+				assertTrue(responses.get(0)[0].startsWith("HTTP/1.1 200 "));
+				assertTrue(responses.get(0)[1].contains("v1.2.3"));
+				assertTrue(responses.get(1)[0].startsWith("HTTP/1.1 404 "));
+				assertTrue(responses.get(2)[0].startsWith("HTTP/1.1 200 "));
+				assertEquals("", responses.get(2)[1]);
+				assertTrue(responses.get(3)[0].startsWith("HTTP/1.1 302 "));
+				assertTrue(responses.get(3)[0].contains("Connection: close"));
+				// server closes after Connection: close
+				assertEquals(-1, s.getInputStream().read());
+			} finally {
+				s.close();
+			}
+		} finally {
+			server.close();
+			metadata.delete();
+			metadata.getParentFile().delete();
+			metadata.getParentFile().getParentFile().delete();
+			dir.delete();
+		}
+	}
+
+	/**
+	 * @param headIndex index of HEAD request (response without body)
+	 * @return {head, body} of each response until connection is closed
+	 */
+	private static List<String[]> readResponses(final InputStream is, final int headIndex)
+			throws IOException {
+		final List<String[]> responses = new ArrayList<String[]>();
+		String head;
+		while ((head = readHead(is)) != null) {
+			int length = 0;
+			for (final String line : head.split("\r\n")) {
+				if (line.toLowerCase(Locale.ENGLISH).startsWith("content-length:")) {
+					length = Integer.parseInt(line.substring(15).trim());
+				}
+			}
+			if (responses.size() == headIndex) {
+				length = 0;
+			}
+			final byte[] body = new byte[length];
+			for (int off = 0; off < length;) {
+				final int n = is.read(body, off, length - off);
+				if (n < 0) {
+					throw new IOException("Unexpected EOF");
+				}
+				off += n;
+			}
+			responses.add(new String[] { head, new String(body, StandardCharsets.ISO_8859_1) });
+			if (head.contains("Connection: close")) {
+				break;
+			}
+		}
+		return responses;
+	}
+
+	private static String readHead(final InputStream is) throws IOException {
+		final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		int c;
+		while ((c = is.read()) >= 0) {
+			buf.write(c);
+			final byte[] b = buf.toByteArray();
+			final int n = b.length;
+			if ((n >= 4) && (b[n - 4] == '\r') && (b[n - 3] == '\n') && (b[n - 2] == '\r') && (b[n - 1] == '\n')) {
+				return new String(b, 0, n - 4, StandardCharsets.ISO_8859_1);
+			}
+		}
+		return null;
+	}
+}
@@ -18,8 +18,10 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map.Entry;
-import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -37,13 +39,35 @@ import org.xml.sax.SAXException;
 
 /**
  * Badges for Maven Central
+ * <p>
+ * Lifecycle:
+ * <ul>
+ * <li>warm-up: paths in init-param "warmup" or system property {@value #WARMUP_PROP} (comma separated, like
+ * /org.javastack/mavenbadges-core/badge.svg) are processed in background after init</li>
+ * <li>{@value #HEALTH_LIVE}: always 200 (with details) if servlet is responding</li>
+ * <li>{@value #HEALTH_READY}: 200 when warm-up is done and not shutting down; 503 otherwise, or if
+ * upstream is failing and version cache is empty (nothing could be served)</li>
+ * <li>{@link #prepareShutdown()}: called by runners before stopping the server, readiness goes down and
+ * waits system property {@value #SHUTDOWN_DELAY_PROP} (millis, default 5000) so load balancers stop
+ * sending traffic; in-flight requests are drained by the container</li>
+ * <li>destroy: access log is flushed and its writer thread stopped</li>
+ * </ul>
  * 
  * @author Guillermo Grandes / guillermo.grandes[at]gmail.com
  */
 public class MavenBadgesServlet extends HttpServlet {
 	static final Logger log = LoggerFactory.getLogger(MavenBadgesServlet.class);
 	private static final long serialVersionUID = 42L;
+	static final String WARMUP_PROP = "mavenbadges.warmup";
+	static final String HEALTH_LIVE = "/_health/live";
+	static final String HEALTH_READY = "/_health/ready";
+	static final String SHUTDOWN_DELAY_PROP = "mavenbadges.shutdownDelay";
+	private static final int UPSTREAM_FAILURES_UNHEALTHY = 5;
+	private static volatile boolean stopping = false;
 	private MavenBadges mb = null;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private volatile boolean warmedUp = false;
+	private volatile boolean shutdown = false;
 
 	@Override
 	public void init() throws ServletException {
@@ -52,18 +76,92 @@ public class MavenBadgesServlet extends HttpServlet {
 		} catch (Exception e) {
 			throw new ServletException(e);
 		}
+		String warmup = getInitParameter("warmup");
+		if (warmup == null) {
+			warmup = System.getProperty(WARMUP_PROP);
+		}
+		final List<String> paths = new ArrayList<String>();
+		if (warmup != null) {
+			for (final String path : warmup.split(",")) {
+				if (!path.trim().isEmpty()) {
+					paths.add(path.trim());
+				}
+			}
+		}
+		if (paths.isEmpty()) {
+			warmedUp = true;
+		} else {
+			final Thread t = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					warmup(paths);
+				}
+			}, "mavenbadges-warmup");
+			t.setDaemon(true);
+			t.start();
+		}
+	}
+
+	private void warmup(final List<String> paths) {
+		final long begin = System.currentTimeMillis();
+		try {
+			for (final String path : paths) {
+				if (shutdown) {
+					return;
+				}
+				try {
+					final Response r = mb.process(PathInfo.parse(path));
+					log.info("Warm-up path=" + path + " status=" + r.getCode());
+				} catch (Exception e) {
+					log.warn("Warm-up failed path=" + path + ": " + e);
+				}
+			}
+		} finally {
+			warmedUp = true;
+			log.info("Warm-up done (" + (System.currentTimeMillis() - begin) + "ms) paths=" + paths.size());
+		}
+	}
+
+	/**
+	 * Set readiness down (server still accepting requests) and wait {@value #SHUTDOWN_DELAY_PROP}
+	 * millis; call before stopping the server
+	 */
+	public static void prepareShutdown() {
+		stopping = true;
+		final long delay = Long.getLong(SHUTDOWN_DELAY_PROP, 5000L);
+		log.info("Shutdown: readiness down, waiting " + delay + "ms before stop");
+		if (delay > 0) {
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
 	}
 
 	@Override
 	public void destroy() {
+		shutdown = true;
+		if (inFlight.get() > 0) {
+			log.warn("Shutdown with requests in-flight=" + inFlight.get());
+		}
+		AccessLog.shutdown(1000);
 	}
 
 	@Override
 	protected void doGet(final HttpServletRequest request, final HttpServletResponse response)
 			throws ServletException, IOException {
+		final String pathInfo = request.getPathInfo();
+		if (HEALTH_LIVE.equals(pathInfo) || HEALTH_READY.equals(pathInfo)) {
+			health(response, HEALTH_READY.equals(pathInfo));
+			return;
+		}
+		final long begin = System.nanoTime();
+		final String id = RequestId.next();
+		inFlight.incrementAndGet();
 		try {
 			MDC.put(Constants.MDC_IP, request.getRemoteAddr());
-			MDC.put(Constants.MDC_ID, getNewID());
+			MDC.put(Constants.MDC_ID, id);
 			doGet0(request, response);
 		} catch (FileNotFoundException e) {
 			if (response.isCommitted()) {
@@ -87,10 +185,33 @@ public class MavenBadgesServlet extends HttpServlet {
 				log.error("Internal Server Error: " + e, e);
 			}
 		} finally {
+			AccessLog.log(id, request.getRemoteAddr(), pathInfo, response.getStatus(), begin);
 			MDC.clear();
+			inFlight.decrementAndGet();
 		}
 	}
 
+	private void health(final HttpServletResponse response, final boolean readiness) throws IOException {
+		final int cacheSize = mb.getCacheSize();
+		final int upstreamFailures = mb.getUpstreamFailures();
+		final boolean upstreamUp = (upstreamFailures < UPSTREAM_FAILURES_UNHEALTHY);
+		// liveness: if we are here, we are alive
+		final boolean ok = (!readiness
+				|| (warmedUp && !stopping && !shutdown && (upstreamUp || (cacheSize > 0))));
+		response.setHeader("Cache-Control", "no-cache");
+		response(response, (ok ? HttpServletResponse.SC_OK : HttpServletResponse.SC_SERVICE_UNAVAILABLE), //
+				"status=" + (ok ? "UP" : "DOWN") //
+						+ " warmedUp=" + warmedUp //
+						+ " shutdown=" + (stopping || shutdown) //
+						+ " inFlight=" + inFlight.get() //
+						+ " cacheSize=" + cacheSize //
+						+ " upstream=" + (upstreamUp ? "UP" : "DOWN") //
+						+ " upstreamFailures=" + upstreamFailures //
+						+ " lastUpstreamSuccess=" + mb.getLastUpstreamSuccess() //
+						+ " lastUpstreamFailure=" + mb.getLastUpstreamFailure() //
+						+ "\n");
+	}
+
 	private void doGet0(final HttpServletRequest request, final HttpServletResponse response)
 			throws ServletException, IOException, InvalidExpression, ParserConfigurationException,
 			SAXException {
@@ -117,8 +238,4 @@ public class MavenBadgesServlet extends HttpServlet {
 		response.setContentType("text/plain; charset=ISO-8859-1");
 		out.print(msg);
 	}
-
-	private static final String getNewID() {
-		return UUID.randomUUID().toString();
-	}
 }
@@ -13,12 +13,28 @@ public class TomcatServerRunner {
 		// https://devcenter.heroku.com/articles/create-a-java-web-application-using-embedded-tomcat
 		// https://www.codejava.net/servers/tomcat/how-to-embed-tomcat-server-into-java-web-applications
 		// Create a basic tomcat server object that will listen on port 8080.
-		Tomcat tomcat = new Tomcat();
+		final Tomcat tomcat = new Tomcat();
 		tomcat.setPort(PORT);
 		StandardContext ctx = (StandardContext) tomcat.addContext(ROOT_CONTEXT_PATH,
 				new File(".").getAbsolutePath());
-		tomcat.addServlet(ROOT_CONTEXT_PATH, "MavenBadges", new MavenBadgesServlet());
+		// Init on start (like load-on-startup in web.xml), not on first request, so warm-up starts early
+		tomcat.addServlet(ROOT_CONTEXT_PATH, "MavenBadges", new MavenBadgesServlet()).setLoadOnStartup(1);
 		ctx.addServletMappingDecoded("/*", "MavenBadges");
+		// On stop, wait for in-flight requests before servlet unload
+		ctx.setUnloadDelay(Constants.CONNECTION_TIMEOUT + Constants.READ_TIMEOUT);
+		// Stop gracefully on JVM shutdown (SIGTERM): readiness down, delay, drain in-flight requests
+		Runtime.getRuntime().addShutdownHook(new Thread("tomcat-shutdown") {
+			@Override
+			public void run() {
+				try {
+					MavenBadgesServlet.prepareShutdown();
+					tomcat.stop();
+					tomcat.destroy();
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		});
 		tomcat.start();
 		tomcat.getServer().await();
 	}